@@ -0,0 +1,227 @@
+package dev.huntstew.retrochess;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import java.util.Arrays;
+
+import dev.huntstew.retrochess.engine.Bitboards;
+import dev.huntstew.retrochess.engine.Pieces;
+import dev.huntstew.retrochess.states.BoardState;
+
+/**
+ * The whole chess board as one view, drawing squares, pieces, highlights and the selected square in a single onDraw
+ * Pieces are drawn from bitmaps rendered once per board size, black pieces through a shared negative filter
+ * Touches are mapped to squares arithmetically, A1 is the bottom left square
+ */
+public class BoardView extends View {
+    private static final float[] NEGATIVE = {
+            -1.0f,     0,     0,    0, 255, // red
+            0, -1.0f,     0,    0, 255, // green
+            0,     0, -1.0f,    0, 255, // blue
+            0,     0,     0, 1.0f,   0  // alpha
+    };
+    /** the image of each piece kind, PAWN through KING */
+    private static final int[] PIECE_DRAWABLES = {
+            R.drawable.pawn, R.drawable.knight, R.drawable.bishop, R.drawable.castle, R.drawable.queen, R.drawable.king
+    };
+
+    /**
+     * Told about every tap on a square
+     */
+    public interface OnSquareTapListener {
+        /**
+         * Called on the UI thread when a square is tapped
+         * @param square the square, 0 for A1 through 63 for H8
+         */
+        void onSquareTap(int square);
+    }
+
+    private final Paint lightPaint = new Paint();
+    private final Paint darkPaint = new Paint();
+    private final Paint highlightPaint = new Paint();
+    private final Paint selectionPaint = new Paint();
+    /** pixel art pieces are scaled without smoothing */
+    private final Paint whitePiecePaint = new Paint();
+    private final Paint blackPiecePaint = new Paint();
+
+    /** the piece on each square, Pieces.NONE when empty */
+    private final int[] pieces = new int[64];
+    /** a bitboard of the highlighted squares */
+    private long highlighted;
+    /** the selected square, Square.NONE for none */
+    private int selected = Square.NONE;
+
+    /** the image of each piece kind at the current square size, null until the view has a size */
+    private final Bitmap[] pieceBitmaps = new Bitmap[PIECE_DRAWABLES.length];
+    private float squareSize;
+    private OnSquareTapListener listener;
+
+    public BoardView(Context context){
+        this(context, null);
+    }
+
+    public BoardView(Context context, @Nullable AttributeSet attrs){
+        super(context, attrs);
+        Arrays.fill(pieces, Pieces.NONE);
+        lightPaint.setColor(ContextCompat.getColor(context, R.color.light_tile));
+        darkPaint.setColor(ContextCompat.getColor(context, R.color.dark_tile));
+        highlightPaint.setColor(ContextCompat.getColor(context, R.color.selection));
+        selectionPaint.setColor(ContextCompat.getColor(context, R.color.selection));
+        selectionPaint.setStyle(Paint.Style.STROKE);
+        whitePiecePaint.setFilterBitmap(false);
+        blackPiecePaint.setFilterBitmap(false);
+        blackPiecePaint.setColorFilter(new ColorMatrixColorFilter(NEGATIVE));
+    }
+
+    /**
+     * Keeps the board square, as large as both measure specs allow
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec){
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = MeasureSpec.getSize(heightMeasureSpec);
+        int size = MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.UNSPECIFIED ? width
+                : MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED ? height : Math.min(width, height);
+        setMeasuredDimension(size, size);
+    }
+
+    /**
+     * Renders the piece bitmaps for the new square size
+     */
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight){
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        int boardSize = Math.min(width - getPaddingLeft() - getPaddingRight(), height - getPaddingTop() - getPaddingBottom());
+        squareSize = Math.max(0, boardSize) / 8f;
+        int bitmapSize = Math.max(1, (int) squareSize);
+        selectionPaint.setStrokeWidth(squareSize / 12f);
+        for(int kind = 0; kind < PIECE_DRAWABLES.length; kind++){
+            if(pieceBitmaps[kind] != null){
+                pieceBitmaps[kind].recycle();
+            }
+            Drawable drawable = ContextCompat.getDrawable(getContext(), PIECE_DRAWABLES[kind]);
+            Bitmap bitmap = Bitmap.createBitmap(bitmapSize, bitmapSize, Bitmap.Config.ARGB_8888);
+            if(drawable != null){
+                drawable.setBounds(0, 0, bitmapSize, bitmapSize);
+                drawable.draw(new Canvas(bitmap));
+            }
+            pieceBitmaps[kind] = bitmap;
+        }
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas){
+        super.onDraw(canvas);
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        for(int square = 0; square < 64; square++){
+            float x = left + Bitboards.file(square) * squareSize;
+            float y = top + (7 - Bitboards.rank(square)) * squareSize;
+            canvas.drawRect(x, y, x + squareSize, y + squareSize, (Bitboards.LIGHT_SQUARES & Bitboards.bit(square)) != 0 ? lightPaint : darkPaint);
+
+            int piece = pieces[square];
+            if(piece != Pieces.NONE && pieceBitmaps[Pieces.kind(piece)] != null){
+                canvas.drawBitmap(pieceBitmaps[Pieces.kind(piece)], x, y, Pieces.color(piece) == Pieces.BLACK ? blackPiecePaint : whitePiecePaint);
+            }
+
+            if((highlighted & Bitboards.bit(square)) != 0){
+                canvas.drawRect(x, y, x + squareSize, y + squareSize, highlightPaint);
+            }
+            if(square == selected){
+                float inset = selectionPaint.getStrokeWidth() / 2;
+                canvas.drawRect(x + inset, y + inset, x + squareSize - inset, y + squareSize - inset, selectionPaint);
+            }
+        }
+    }
+
+    /**
+     * Reports a tap on the square under the finger when it is lifted
+     */
+    @Override
+    public boolean onTouchEvent(MotionEvent event){
+        if(event.getActionMasked() == MotionEvent.ACTION_DOWN){
+            return true;
+        }
+        if(event.getActionMasked() != MotionEvent.ACTION_UP){
+            return super.onTouchEvent(event);
+        }
+        performClick();
+        int square = squareAt(event.getX(), event.getY());
+        if(square != Square.NONE && listener != null){
+            listener.onSquareTap(square);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean performClick(){
+        return super.performClick();
+    }
+
+    /**
+     * Finds the square under a point of the view
+     * @param x the x coordinate, in pixels from the left of the view
+     * @param y the y coordinate, in pixels from the top of the view
+     * @return the square, Square.NONE if the point is outside the board
+     */
+    public int squareAt(float x, float y){
+        if(squareSize <= 0){
+            return Square.NONE;
+        }
+        int file = (int) Math.floor((x - getPaddingLeft()) / squareSize);
+        int rank = 7 - (int) Math.floor((y - getPaddingTop()) / squareSize);
+        if(file < 0 || file > 7 || rank < 0 || rank > 7){
+            return Square.NONE;
+        }
+        return Bitboards.square(file, rank);
+    }
+
+    /**
+     * Shows the pieces of a board state on some squares, redrawing only if one of them changed
+     * @param board the board to show
+     * @param squares a bitboard of the squares to update
+     */
+    public void setPieces(BoardState board, long squares){
+        boolean changed = false;
+        for(; squares != 0; squares &= squares - 1){
+            int square = Long.numberOfTrailingZeros(squares);
+            int piece = board.pieceAt(square);
+            if(pieces[square] != piece){
+                pieces[square] = piece;
+                changed = true;
+            }
+        }
+        if(changed){
+            invalidate();
+        }
+    }
+
+    /**
+     * Highlights squares, such as those the selected piece can move to
+     * @param highlighted a bitboard of the squares to highlight, replacing those highlighted before
+     * @param selected the selected square, Square.NONE for none
+     */
+    public void setHighlights(long highlighted, int selected){
+        if(this.highlighted != highlighted || this.selected != selected){
+            this.highlighted = highlighted;
+            this.selected = selected;
+            invalidate();
+        }
+    }
+
+    public void setOnSquareTapListener(OnSquareTapListener listener) {
+        this.listener = listener;
+    }
+}
@@ -0,0 +1,77 @@
+package dev.huntstew.retrochess;
+
+import java.util.Random;
+import java.util.Set;
+
+import dev.huntstew.retrochess.engine.Bitbases;
+import dev.huntstew.retrochess.engine.Moves;
+import dev.huntstew.retrochess.engine.OpeningBook;
+import dev.huntstew.retrochess.engine.ParallelSearch;
+import dev.huntstew.retrochess.engine.Position;
+import dev.huntstew.retrochess.engine.Search;
+
+/**
+ * A player whose moves are chosen by the search engine instead of taps on the board
+ */
+public class ComputerPlayer extends Player {
+    /** how long the computer opponent of a new game thinks about each move, short enough to keep a phone responsive */
+    public static final long DEFAULT_THINKING_MILLIS = 1500;
+
+    /** searches on every core, reused between turns so its tables and threads are only created once */
+    private final ParallelSearch search = new ParallelSearch(Runtime.getRuntime().availableProcessors(), Search.DEFAULT_TABLE_MEGABYTES);
+    /** how long the engine may think about each move */
+    private final long thinkingMillis;
+    /** the book moves are played from while the game is in it, null for none */
+    private final OpeningBook book;
+    /** chooses between the book moves of a position */
+    private final Random random = new Random();
+
+    /**
+     * Creates a computer player
+     * @param name the name shown for the player
+     * @param thinkingMillis how long to search each move, 1000 to 2000 keeps a phone responsive
+     */
+    public ComputerPlayer(String name, long thinkingMillis){
+        this(name, thinkingMillis, null);
+    }
+
+    /**
+     * Creates a computer player that plays from an opening book before searching
+     * @param name the name shown for the player
+     * @param thinkingMillis how long to search each move once out of the book
+     * @param book the opening book, null for none
+     */
+    public ComputerPlayer(String name, long thinkingMillis, OpeningBook book){
+        super(name);
+        this.thinkingMillis = thinkingMillis;
+        this.book = book;
+        // Ready long before the first endgame, without holding up the opening moves
+        Bitbases.generateInBackground();
+    }
+
+    /**
+     * Plays a book move if the position is in the book, otherwise searches a copy of the game's position for the best move
+     * @param game the game being played
+     * @param possibleMoves the legal moves, the search generates its own
+     * @return the move to make
+     */
+    @Override
+    public Move getMove(Game game, Set<Move> possibleMoves){
+        Position position = new Position(game.getPosition());
+        if(book != null){
+            int bookMove = book.pick(position, random);
+            if(bookMove != Moves.NO_MOVE){
+                return new Move(bookMove);
+            }
+        }
+        return new Move(search.search(position, Search.MAX_PLY, Long.MAX_VALUE, thinkingMillis));
+    }
+
+    /**
+     * Stops the search threads, the player can not move afterwards
+     */
+    @Override
+    public void release(){
+        search.shutdown();
+    }
+}
@@ -8,13 +8,24 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 public class GameActivity extends AppCompatActivity {
+    /** boolean intent extra, whether black is played by the engine, true when left out */
+    public static final String EXTRA_COMPUTER_OPPONENT = "dev.huntstew.retrochess.COMPUTER_OPPONENT";
+
+    /**
+     * Checks whether the game of this activity is played against the engine
+     * @return true unless the intent asked for two players on the device
+     */
+    public boolean hasComputerOpponent(){
+        return getIntent().getBooleanExtra(EXTRA_COMPUTER_OPPONENT, true);
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_game);
 
         ((TextView)findViewById(R.id.Player1Text)).setText("Hunter");
-        ((TextView)findViewById(R.id.Player2Text)).setText("Ella");
+        ((TextView)findViewById(R.id.Player2Text)).setText(hasComputerOpponent() ? "Computer" : "Ella");
 
         ((ImageView)findViewById(R.id.Player1ImageView)).setImageDrawable(AppCompatResources.getDrawable(this, R.drawable.pawn));
         ((ImageView)findViewById(R.id.Player2ImageView)).setImageDrawable(AppCompatResources.getDrawable(this, R.drawable.pawn));
@@ -2,31 +2,31 @@ package dev.huntstew.retrochess;
 
 import androidx.annotation.NonNull;
 
+import dev.huntstew.retrochess.engine.Bitboards;
+import dev.huntstew.retrochess.engine.Moves;
+import dev.huntstew.retrochess.engine.Pieces;
 import dev.huntstew.retrochess.enums.MoveType;
 
 /**
  * Represents a move that may or may not happen
  * A "move" is defined as a tile to another tile via some method, moveType
+ * This is a view over a move packed into an int by the engine, see Moves, tiles are squares from 0 for A1 to 63 for H8
  */
 public class Move implements Comparable<Move>{
-    /** A tileId string representing the original tile */
-    private final String location;
-    /** A tileId string representing the destination tile */
-    private final String destination;
-    /** The column of the location tile */
-    private final int locationCol;
-    /** The row of the location tile */
-    private final int locationRow;
-    /** The column of the destination tile */
-    private final int destinationCol;
-    /** The row of the destination tile */
-    private final int destinationRow;
-    /** The type of move, determining the way Game.makeMove operates */
-    private final MoveType type;
+    /** The packed move, see Moves */
+    private final int move;
 
     /**
-     * Takes a starting tile (col1, row1) and a destination (col2, row2), translates the tiles to the corresponding Id, and creates the move
-     * Also takes a moveType, which determines how the move is made
+     * Wraps a packed move from the engine
+     * @param move the packed move
+     */
+    public Move(int move){
+        this.move = move;
+    }
+
+    /**
+     * Takes a starting tile (col1, row1) and a destination (col2, row2), translates the tiles to the corresponding squares, and creates the move
+     * Also takes a moveType, which determines how the move is made, promotions are always to a queen
      * @param col1 the starting tiles column
      * @param row1 the starting tiles row
      * @param col2 the destination's column
@@ -34,13 +34,17 @@ public class Move implements Comparable<Move>{
      * @param type the type of move
      */
     public Move(int col1, int row1, int col2, int row2, MoveType type){
-        this.location = (char) (col1 + 'A') + "" + (char)((8 - row1) + '0');        /* Subtracts row from 8, as the actual board starts from the bottom, but the representation starts from the top */
-        this.locationCol = col1;
-        this.locationRow = row1;
-        this.destination = (char) (col2 + 'A') + "" + (char)((8 - row2) + '0');
-        this.destinationCol = col2;
-        this.destinationRow = row2;
-        this.type = type;
+        int from = Square.at(col1, row1);
+        int to = Square.at(col2, row2);
+        this.move = type == MoveType.PROMOTION ? Moves.promotion(from, to, Pieces.QUEEN) : Moves.make(from, to, type.ordinal());
+    }
+
+    /**
+     * Gets the packed move
+     * @return the move as the engine encodes it
+     */
+    public int getEncoded() {
+        return move;
     }
 
     /**
@@ -48,15 +52,15 @@ public class Move implements Comparable<Move>{
      * @return the moveType of the move
      */
     public MoveType getType() {
-        return type;
+        return MoveType.values()[Moves.flag(move)];
     }
 
     /**
-     * Gets the destination tile as a tileId
-     * @return the tileId of the destination
+     * Gets the destination tile
+     * @return the square of the destination
      */
-    public String getDestination() {
-        return destination;
+    public int getDestination() {
+        return Moves.to(move);
     }
 
     /**
@@ -64,7 +68,7 @@ public class Move implements Comparable<Move>{
      * @return the column
      */
     public int getDestinationCol() {
-        return destinationCol;
+        return Bitboards.file(Moves.to(move));
     }
 
     /**
@@ -72,15 +76,15 @@ public class Move implements Comparable<Move>{
      * @return the row
      */
     public int getDestinationRow() {
-        return destinationRow;
+        return Square.row(Moves.to(move));
     }
 
     /**
-     * Gets the initial tile as a tileId
-     * @return the tileId of the initial location
+     * Gets the initial tile
+     * @return the square of the initial location
      */
-    public String getLocation() {
-        return location;
+    public int getLocation() {
+        return Moves.from(move);
     }
 
     /**
@@ -88,7 +92,7 @@ public class Move implements Comparable<Move>{
      * @return the column
      */
     public int getLocationCol() {
-        return locationCol;
+        return Bitboards.file(Moves.from(move));
     }
 
     /**
@@ -96,20 +100,27 @@ public class Move implements Comparable<Move>{
      * @return the row
      */
     public int getLocationRow() {
-        return locationRow;
+        return Square.row(Moves.from(move));
     }
 
     @Override
     public int compareTo(Move oMove) {
-        String value1 = location + destination;
-        String value2 = oMove.getLocation() + oMove.getDestination();
-        return value1.compareTo(value2);
+        return Integer.compare(move, oMove.move);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Move && ((Move) o).move == move;
+    }
+
+    @Override
+    public int hashCode() {
+        return move;
     }
 
     @NonNull
     @Override
     public String toString() {
-        return location + destination;
+        return Square.name(getLocation()) + Square.name(getDestination());
     }
 }
-
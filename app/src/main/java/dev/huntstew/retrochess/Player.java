@@ -2,118 +2,75 @@ package dev.huntstew.retrochess;
 
 import androidx.annotation.NonNull;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
-import java.util.concurrent.BrokenBarrierException;
+
+import dev.huntstew.retrochess.engine.Bitboards;
 
 public class Player {
     private String name;
-    private List<Piece> pieces;
     private final boolean dummy;
 
     public Player(String name){
         this.name = name;
         this.dummy = false;
-        this.pieces = new ArrayList<>();
     }
 
     public Player(boolean dummy){
-        if(dummy){
-            this.dummy = true;
-        }
-        else{
-            this.dummy = false;
-            this.pieces = new ArrayList<>();
-        }
+        this.dummy = dummy;
     }
 
+    /**
+     * Waits for the player to tap a piece and then one of its destinations
+     * Tapping the chosen piece again puts it back, taps that are not part of a move are ignored
+     * @param game the game being played
+     * @param possibleMoves the legal moves
+     * @return the move to make
+     */
     public Move getMove(Game game, Set<Move> possibleMoves){
-        String firstSquare;
+        // Taps made during the other player's turn are not meant for this one
+        game.clearTaps();
 
-        Move finalMove = null;
+        while(true){
+            int firstSquare = waitForSelection(game);
 
-        game.setSelectedTile(null);
-
-        while(game.getSelectedTile().isEmpty()) {
-            waitForSelection(game);
-            boolean isValid = false;
-            for (Move move : possibleMoves) {
-                if (move.getLocation().equals(game.getSelectedTile().get())) {
-                    isValid = true;
+            long movesFromFirstSquare = 0;
+            for(Move move : possibleMoves){
+                if(move.getLocation() == firstSquare){
+                    movesFromFirstSquare |= Bitboards.bit(move.getDestination());
                 }
             }
-            if (!isValid) {
-                game.setSelectedTile(null);
+            if(movesFromFirstSquare == 0){
+                continue;
             }
-        }
-
-        firstSquare = game.getSelectedTile().get();
-
-        List<String> movesFromFirstSquare = new ArrayList<>();
-        for(Move move : possibleMoves){
-            if(move.getLocation().equals(firstSquare)){
-                movesFromFirstSquare.add(move.getDestination());
-            }
-        }
-        updateOverlay(game, movesFromFirstSquare, false);
-
-        game.setSelectedTile(null);
-
-        while(game.getSelectedTile().isEmpty()) {
-            waitForSelection(game);
-            if (game.getSelectedTile().get().equals(firstSquare)) {
-                updateOverlay(game, movesFromFirstSquare, true);
-                return getMove(game, possibleMoves);
-            }
-            boolean isValid = false;
-            for (Move move : possibleMoves) {
-                if (move.getLocation().equals(firstSquare) && move.getDestination().equals(game.getSelectedTile().get())) {
-                    finalMove = move;
-                    isValid = true;
+            game.postOverlay(firstSquare, movesFromFirstSquare);
+
+            int secondSquare = waitForSelection(game);
+            while(secondSquare != firstSquare){
+                for(Move move : possibleMoves){
+                    if(move.getLocation() == firstSquare && move.getDestination() == secondSquare){
+                        game.postOverlay(Square.NONE, 0L);
+                        return move;
+                    }
                 }
+                secondSquare = waitForSelection(game);
             }
-            if (!isValid) {
-                game.setSelectedTile(null);
-            }
-        }
-        game.getMoveBarrier().reset();
-        updateOverlay(game, movesFromFirstSquare, true);
-        game.setSelectedTile(null);
-
-        return finalMove;
-    }
-
-    public void waitForSelection(Game game){
-        game.setAcceptingMove(true);
-        game.getMoveBarrier().reset();
-        while(game.isAcceptingMove()){
-            try {
-                game.getMoveBarrier().await();
-                game.setAcceptingMove(false);
-            } catch (BrokenBarrierException | InterruptedException e) {
-                throw new RuntimeException(e);
-            }
+            game.postOverlay(Square.NONE, 0L);
         }
     }
 
-    private void updateOverlay(Game game, List<String> movesFromFirstSquare, boolean clear){
-        game.setUpdatingOverlay(true);
-        game.getUpdateBarrier().reset();
-        game.postOverlay(movesFromFirstSquare, clear);
-        while(game.isUpdatingOverlay()){
-            try {
-                game.getOverlayBarrier().await();
-                game.setUpdatingOverlay(false);
-            }catch(InterruptedException | BrokenBarrierException e) {
-                throw new RuntimeException(e);
-            }
-        }
+    /**
+     * Waits for the next tap on the board
+     * @param game the game being played
+     * @return the tapped tile, see Square
+     */
+    public int waitForSelection(Game game){
+        return game.takeTap();
     }
 
-    public List<Piece> getPieces() {
-        return pieces;
-    }
+    /**
+     * Frees what the player holds once its game is over, a player tapping the board holds nothing
+     */
+    public void release(){}
 
     public boolean isDummy() {
         return dummy;
@@ -0,0 +1,80 @@
+package dev.huntstew.retrochess;
+
+import dev.huntstew.retrochess.engine.Bitboards;
+import dev.huntstew.retrochess.engine.Position;
+
+/**
+ * Squares are ints from 0 for A1 to 63 for H8, the same as the engine's, this translates them at the edges of the app
+ * Names such as "E2" are looked up from a table, so showing a square never builds a string
+ */
+public final class Square {
+    /** used for no square at all */
+    public static final int NONE = Position.NO_SQUARE;
+
+    private static final String[] NAMES = new String[64];
+    /** the row of each square as drawn, 0 for the top rank */
+    private static final int[] ROWS = new int[64];
+
+    static {
+        for(int square = 0; square < 64; square++){
+            NAMES[square] = (char) ('A' + Bitboards.file(square)) + "" + (char) ('1' + Bitboards.rank(square));
+            ROWS[square] = 7 - Bitboards.rank(square);
+        }
+    }
+
+    private Square(){}
+
+    /**
+     * Gets the name of a square
+     * @param square the square
+     * @return the name, such as "E2"
+     */
+    public static String name(int square){
+        return NAMES[square];
+    }
+
+    /**
+     * Reads a square name such as "E2", in either case
+     * @param name the name
+     * @return the square, NONE if the name is not a square
+     */
+    public static int parse(String name){
+        if(name == null || name.length() != 2){
+            return NONE;
+        }
+        int file = Character.toUpperCase(name.charAt(0)) - 'A';
+        int rank = name.charAt(1) - '1';
+        if(file < 0 || file > 7 || rank < 0 || rank > 7){
+            return NONE;
+        }
+        return Bitboards.square(file, rank);
+    }
+
+    /**
+     * Checks whether an int is a square
+     * @param square the int
+     * @return true from 0 to 63
+     */
+    public static boolean isValid(int square){
+        return square >= 0 && square < 64;
+    }
+
+    /**
+     * Gets the row of a square as drawn, with white at the bottom
+     * @param square the square
+     * @return 0 for the eighth rank through 7 for the first
+     */
+    public static int row(int square){
+        return ROWS[square];
+    }
+
+    /**
+     * Gets the square at a column and row as drawn
+     * @param col the column, 0 for the A file
+     * @param row the row, 0 for the eighth rank
+     * @return the square
+     */
+    public static int at(int col, int row){
+        return Bitboards.square(col, 7 - row);
+    }
+}
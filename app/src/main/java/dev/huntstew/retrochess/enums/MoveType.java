@@ -4,10 +4,12 @@ package dev.huntstew.retrochess.enums;
  * Simple enum for the different "types" of moves
  * NORMAL represents just moving a piece to a tile
  * CASTLE is for castling rules
- * PASSANTE is the
+ * PASSANTE is the en passante pawn capture
+ * PROMOTION is a pawn reaching the last rank, where it becomes a queen
  */
 public enum MoveType {
     NORMAL,
     CASTLE,
-    PASSANTE
+    PASSANTE,
+    PROMOTION
 }
@@ -1,59 +1,91 @@
 package dev.huntstew.retrochess.states;
 
-import dev.huntstew.retrochess.Piece;
-import dev.huntstew.retrochess.enums.PieceType;
+import dev.huntstew.retrochess.engine.Pieces;
+import dev.huntstew.retrochess.engine.Position;
 
+/**
+ * A snapshot of the board posted to the UI, only the piece on every square and the few fields FEN needs
+ * The game's position keeps its whole move history, far more than drawing needs, so it is never posted itself
+ */
 public class BoardState {
-    private final Piece[][] board;
+    /** the change-set of a state that may differ from the one before it anywhere */
+    public static final long ALL_SQUARES = ~0L;
+
+    /** the piece code on every square, Pieces.NONE for empties */
+    private final byte[] pieces = new byte[64];
+    private final int sideToMove;
+    private final int castlingRights;
+    private final int enPassantSquare;
+    private final int halfmoveClock;
+    private final int fullmoveNumber;
+    /** the squares that changed since the state posted before this one */
+    private final long changedSquares;
+    /** counts posted states, so a state that was never drawn can be noticed */
+    private final int sequence;
 
     /**
-     * Returns the created game runnable, which ought to be passed into a thread. Uses the activity to update the UI.
-     * White player always goes first
+     * Creates the starting board state, white player always goes first
      */
     public BoardState(){
-        board = new Piece[8][8];
+        this(Position.startingPosition());
+    }
 
-        // "Clears" the board w/ empties
-        for(int i = 0; i < board.length; i++){
-            for(int j = 0; j < board[i].length; j++){
-                board[i][j] = new Piece(PieceType.DUMMY, false, null);
-            }
-        }
+    public BoardState(Position position){
+        this(position, ALL_SQUARES, 0);
+    }
 
-        // Black pieces A8-H7
-        board[0][0] = new Piece(PieceType.ROOK, false, "A8");
-        board[1][0] = new Piece(PieceType.KNIGHT, false, "B8");
-        board[2][0] = new Piece(PieceType.W_BISHOP, false, "C8");
-        board[3][0] = new Piece(PieceType.QUEEN, false, "D8");
-        board[4][0] = new Piece(PieceType.KING, false, "E8");
-        board[5][0] = new Piece(PieceType.B_BISHOP, false, "F8");
-        board[6][0] = new Piece(PieceType.KNIGHT, false, "G8");
-        board[7][0] = new Piece(PieceType.ROOK, false, "H8");
-
-        for(int i = 0; i < board.length; i++){
-            board[i][1] = new Piece(PieceType.PAWN, false, (char)(i + 'A') + "7");
+    /**
+     * Creates a board state following another
+     * @param position the board, copied so it can go on changing
+     * @param changedSquares a bitboard of the squares that changed since the last state
+     * @param sequence one more than the sequence of the last state
+     */
+    public BoardState(Position position, long changedSquares, int sequence){
+        for(int square = 0; square < 64; square++){
+            pieces[square] = (byte) position.pieceAt(square);
         }
+        sideToMove = position.getSideToMove();
+        castlingRights = position.getCastlingRights();
+        enPassantSquare = position.getEnPassantSquare();
+        halfmoveClock = position.getHalfmoveClock();
+        fullmoveNumber = position.getFullmoveNumber();
+        this.changedSquares = changedSquares;
+        this.sequence = sequence;
+    }
 
-        // White pieces A2-H1
-        for(int i = 0; i < board.length; i++){
-            board[i][6] = new Piece(PieceType.PAWN, true, (char)(i + 'A') + "2");
-        }
+    /**
+     * Gets the piece on a square
+     * @param square the square, see Square
+     * @return the piece code, Pieces.NONE if the square is empty
+     */
+    public int pieceAt(int square){
+        return pieces[square];
+    }
 
-        board[0][7] = new Piece(PieceType.ROOK, true, "A1");
-        board[1][7] = new Piece(PieceType.KNIGHT, true, "B1");
-        board[2][7] = new Piece(PieceType.B_BISHOP, true, "C1");
-        board[3][7] = new Piece(PieceType.QUEEN, true, "D1");
-        board[4][7] = new Piece(PieceType.KING, true, "E1");
-        board[5][7] = new Piece(PieceType.W_BISHOP, true, "F1");
-        board[6][7] = new Piece(PieceType.KNIGHT, true, "G1");
-        board[7][7] = new Piece(PieceType.ROOK, true, "H1");
+    /**
+     * Builds a position from the snapshot, with no move history
+     * @return a new position
+     */
+    public Position toPosition(){
+        Position position = new Position();
+        for(int square = 0; square < 64; square++){
+            if(pieces[square] != Pieces.NONE){
+                position.put(square, pieces[square]);
+            }
+        }
+        position.setSideToMove(sideToMove);
+        position.setCastlingRights(castlingRights);
+        position.setEnPassantSquare(enPassantSquare);
+        position.setHalfmoveClock(halfmoveClock);
+        position.setFullmoveNumber(fullmoveNumber);
+        return position;
     }
 
-    public BoardState(Piece[][] board){
-        this.board = board;
+    public long getChangedSquares() {
+        return changedSquares;
     }
 
-    public Piece[][] getBoard() {
-        return board;
+    public int getSequence() {
+        return sequence;
     }
 }
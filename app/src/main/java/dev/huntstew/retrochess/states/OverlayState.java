@@ -1,21 +1,24 @@
 package dev.huntstew.retrochess.states;
 
-import java.util.List;
-
 public class OverlayState {
-    private final List<String> tiles;
-    private final boolean clearing;
+    private final int selected;
+    private final long tiles;
 
-    public OverlayState(List<String> tiles, boolean clearing){
+    /**
+     * Creates an overlay state
+     * @param selected the tile of the piece picked up, Square.NONE for none
+     * @param tiles a bitboard of every tile to highlight, any tile not in it is shown plain
+     */
+    public OverlayState(int selected, long tiles){
+        this.selected = selected;
         this.tiles = tiles;
-        this.clearing = clearing;
     }
 
-    public List<String> getTiles() {
-        return tiles;
+    public int getSelected() {
+        return selected;
     }
 
-    public boolean isClearing() {
-        return clearing;
+    public long getTiles() {
+        return tiles;
     }
 }
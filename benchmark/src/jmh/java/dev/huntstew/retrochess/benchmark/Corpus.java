@@ -0,0 +1,64 @@
+package dev.huntstew.retrochess.benchmark;
+
+import dev.huntstew.retrochess.engine.Fen;
+import dev.huntstew.retrochess.engine.Position;
+
+/**
+ * Fixed positions the benchmarks run over, grouped by game phase
+ */
+final class Corpus {
+    private static final String[] OPENING = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq -",
+            "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq -",
+            "rnbqkb1r/pp2pppp/3p1n2/8/3NP3/8/PPP2PPP/RNBQKB1R w KQkq -",
+    };
+    private static final String[] MIDDLEGAME = {
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - -",
+            "r2q1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP2BPPP/R2QK2R b KQ -",
+    };
+    private static final String[] ENDGAME = {
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -",
+            "8/8/4k3/3p4/3P4/4K3/8/8 w - -",
+            "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - -",
+    };
+
+    private Corpus(){}
+
+    /**
+     * Loads every position of a phase
+     * @param phase "opening", "middlegame" or "endgame"
+     * @return the positions
+     */
+    static Position[] load(String phase){
+        String[] fens = fens(phase);
+        Position[] positions = new Position[fens.length];
+        for(int i = 0; i < fens.length; i++){
+            positions[i] = Fen.parse(fens[i]);
+        }
+        return positions;
+    }
+
+    /**
+     * Gets the FEN strings of a phase
+     * @param phase "opening", "middlegame" or "endgame"
+     * @return the FEN strings
+     */
+    static String[] fens(String phase){
+        String[] fens;
+        switch(phase){
+            case "opening":
+                fens = OPENING;
+                break;
+            case "middlegame":
+                fens = MIDDLEGAME;
+                break;
+            case "endgame":
+                fens = ENDGAME;
+                break;
+            default:
+                throw new IllegalArgumentException(phase);
+        }
+        return fens;
+    }
+}
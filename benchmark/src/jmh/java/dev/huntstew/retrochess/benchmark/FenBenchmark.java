@@ -0,0 +1,45 @@
+package dev.huntstew.retrochess.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dev.huntstew.retrochess.engine.Fen;
+import dev.huntstew.retrochess.engine.Position;
+
+/**
+ * Positions loaded and written per second, loading reuses one Position so it should not allocate
+ */
+@State(Scope.Thread)
+public class FenBenchmark {
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    private String[] fens;
+    private Position[] positions;
+    private final Position target = new Position();
+
+    @Setup
+    public void setup(){
+        fens = Corpus.fens(phase);
+        positions = Corpus.load(phase);
+    }
+
+    @Benchmark
+    public void load(Blackhole blackhole){
+        for(String fen : fens){
+            Fen.load(fen, target);
+            blackhole.consume(target.getKey());
+        }
+    }
+
+    @Benchmark
+    public void format(Blackhole blackhole){
+        for(Position position : positions){
+            blackhole.consume(Fen.format(position));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package dev.huntstew.retrochess.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dev.huntstew.retrochess.engine.MoveGenerator;
+import dev.huntstew.retrochess.engine.MoveList;
+import dev.huntstew.retrochess.engine.Position;
+import dev.huntstew.retrochess.engine.Rules;
+
+/**
+ * Benchmarks of the rules engine behind Game, each operation is run once over every position of a phase
+ * Game itself is an Android ViewModel, so these call the engine methods its
+ * getAllPossibleMoves, makeMove, winCheck and isUnwinnable delegate to
+ * Run with ./gradlew :benchmark:jmh, the gc profiler reports the allocation rate next to ops/s
+ */
+@State(Scope.Thread)
+public class RulesBenchmark {
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    private Position[] positions;
+    private final MoveGenerator generator = new MoveGenerator();
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void setup(){
+        positions = Corpus.load(phase);
+    }
+
+    /** Every legal move of the side to move, as Game.getAllPossibleMoves */
+    @Benchmark
+    public void getAllPossibleMoves(Blackhole blackhole){
+        for(Position position : positions){
+            blackhole.consume(generator.generate(position, position.getSideToMove(), moves));
+        }
+    }
+
+    /** Makes and unmakes every legal move, as Game.makeMove and Game.unmakeMove */
+    @Benchmark
+    public void makeMove(Blackhole blackhole){
+        for(Position position : positions){
+            int count = generator.generate(position, position.getSideToMove(), moves);
+            for(int i = 0; i < count; i++){
+                position.makeMove(moves.get(i));
+                blackhole.consume(position.getKey());
+                position.unmakeMove();
+            }
+        }
+    }
+
+    /** Asks whether the opponent attacks each of the 64 squares, the attack query behind check detection */
+    @Benchmark
+    public void isSquareAttacked(Blackhole blackhole){
+        for(Position position : positions){
+            int enemy = position.getSideToMove() ^ 1;
+            for(int square = 0; square < 64; square++){
+                blackhole.consume(position.isSquareAttacked(square, enemy));
+            }
+        }
+    }
+
+    /** Full end of game adjudication, as Game.winCheck */
+    @Benchmark
+    public void winCheck(Blackhole blackhole){
+        for(Position position : positions){
+            blackhole.consume(Rules.adjudicate(position, generator));
+        }
+    }
+
+    /** Insufficient material detection, as Game.isUnwinnable */
+    @Benchmark
+    public void isUnwinnable(Blackhole blackhole){
+        for(Position position : positions){
+            blackhole.consume(Rules.isUnwinnable(position));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package dev.huntstew.retrochess.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import dev.huntstew.retrochess.engine.ParallelSearch;
+import dev.huntstew.retrochess.engine.Position;
+
+/**
+ * Time to search every middlegame position to a fixed depth, with one to eight threads
+ * Lazy SMP should reach the depth sooner as threads are added, up to the number of cores
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SearchBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"6"})
+    public int depth;
+
+    private Position[] positions;
+    private ParallelSearch search;
+
+    @Setup
+    public void setup(){
+        positions = Corpus.load("middlegame");
+        search = new ParallelSearch(threads, 64);
+    }
+
+    /** Each search starts from an empty table, so earlier runs do not help it */
+    @Setup(Level.Invocation)
+    public void clearTable(){
+        search.getTable().clear();
+    }
+
+    @TearDown
+    public void tearDown(){
+        search.shutdown();
+    }
+
+    @Benchmark
+    public void searchToDepth(Blackhole blackhole){
+        for(Position position : positions){
+            blackhole.consume(search.search(position, depth, Long.MAX_VALUE, Long.MAX_VALUE));
+        }
+    }
+}
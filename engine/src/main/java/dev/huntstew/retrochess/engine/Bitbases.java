@@ -0,0 +1,285 @@
+package dev.huntstew.retrochess.engine;
+
+import java.util.Objects;
+
+import static dev.huntstew.retrochess.engine.Pieces.BLACK;
+import static dev.huntstew.retrochess.engine.Pieces.PAWN;
+import static dev.huntstew.retrochess.engine.Pieces.QUEEN;
+import static dev.huntstew.retrochess.engine.Pieces.ROOK;
+import static dev.huntstew.retrochess.engine.Pieces.WHITE;
+
+/**
+ * Exact win or draw knowledge of king and pawn, king and rook, and king and queen against a lone king
+ * Each endgame is one bit per position, set if the side with the piece wins, worked out by retrograde analysis the first time it is probed
+ * Positions are indexed from the stronger side's point of view as white, so black's pieces are mirrored top to bottom:
+ * from the low bits up, the weak king (6), the strong king (6), the piece (6) and whether the weak side is to move (1)
+ * Castling and the fifty move rule are not taken into account
+ * Generating all three takes up to a second, so a search only probes once generate has finished, see isReady
+ */
+public final class Bitbases {
+    /** the side to move loses with best play */
+    public static final int LOSS = -1;
+    public static final int DRAW = 0;
+    /** the side to move wins with best play */
+    public static final int WIN = 1;
+    /** the position is not one of the endgames known */
+    public static final int UNKNOWN = 2;
+
+    private static final int WEAK_TO_MOVE = 1 << 18;
+    private static final int SIZE = 1 << 19;
+
+    private static final long KPK = Material.parse("KPK");
+    private static final long KKP = Material.parse("KKP");
+    private static final long KRK = Material.parse("KRK");
+    private static final long KKR = Material.parse("KKR");
+    private static final long KQK = Material.parse("KQK");
+    private static final long KKQ = Material.parse("KKQ");
+
+    /** each table is its own class, so it is only generated once a position of its endgame is probed */
+    private static final class QueenTable {
+        static final long[] WINS = generate(QUEEN);
+    }
+
+    private static final class RookTable {
+        static final long[] WINS = generate(ROOK);
+    }
+
+    private static final class PawnTable {
+        static final long[] WINS = generate(PAWN);
+    }
+
+    /** set once every table is generated */
+    private static volatile boolean ready;
+    /** whether generateInBackground has started its thread */
+    private static boolean started;
+
+    private Bitbases(){}
+
+    /**
+     * Generates every table now, if not done already, waiting for any generation already running on another thread
+     */
+    public static void generate(){
+        // Reading a table is what generates it
+        Objects.requireNonNull(QueenTable.WINS);
+        Objects.requireNonNull(RookTable.WINS);
+        Objects.requireNonNull(PawnTable.WINS);
+        ready = true;
+    }
+
+    /**
+     * Starts generating every table on a background thread, once, so that searches can use them soon without waiting
+     */
+    public static synchronized void generateInBackground(){
+        if(started || ready){
+            return;
+        }
+        started = true;
+        Thread thread = new Thread(Bitbases::generate, "bitbases");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Checks whether probing is instant, a probe before that generates its table first
+     * @return true once every table is generated
+     */
+    public static boolean isReady(){
+        return ready;
+    }
+
+    /**
+     * Looks up the result of a position with best play, in constant time once its endgame is generated
+     * @param position the position
+     * @return WIN or LOSS for the side to move, DRAW, or UNKNOWN if the position is not KPK, KRK or KQK
+     */
+    public static int probe(Position position){
+        long material = position.getMaterial();
+        int strong = WHITE;
+        int kind;
+        if(material == KPK || material == KKP){
+            kind = PAWN;
+        }
+        else if(material == KRK || material == KKR){
+            kind = ROOK;
+        }
+        else if(material == KQK || material == KKQ){
+            kind = QUEEN;
+        }
+        else{
+            return UNKNOWN;
+        }
+        if(material == KKP || material == KKR || material == KKQ){
+            strong = BLACK;
+        }
+
+        // Mirrored top to bottom black's pawn moves up the board like white's
+        int flip = strong == WHITE ? 0 : 56;
+        int piece = Long.numberOfTrailingZeros(position.pieces(strong, kind)) ^ flip;
+        int index = index(position.kingSquare(strong) ^ flip, position.kingSquare(strong ^ 1) ^ flip, piece, position.getSideToMove() != strong);
+        boolean wins = isWin(kind == PAWN ? PawnTable.WINS : kind == ROOK ? RookTable.WINS : QueenTable.WINS, index);
+        if(!wins){
+            return DRAW;
+        }
+        return position.getSideToMove() == strong ? WIN : LOSS;
+    }
+
+    private static int index(int strongKing, int weakKing, int piece, boolean weakToMove){
+        return (weakToMove ? WEAK_TO_MOVE : 0) | piece << 12 | strongKing << 6 | weakKing;
+    }
+
+    private static boolean isWin(long[] wins, int index){
+        return (wins[index >>> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * Works out every win of one endgame, backwards from the mates
+     * A position with the weak side to move is won once every one of its moves leads to a win, counted down as they are found,
+     * and one with the strong side to move as soon as any of its moves does
+     * @param kind PAWN, ROOK or QUEEN
+     * @return the wins, one bit per index
+     */
+    private static long[] generate(int kind){
+        long[] wins = new long[SIZE / 64];
+        // The moves of each weak to move position not yet known to lose, at most the 8 king moves
+        byte[] movesLeft = new byte[SIZE];
+        int[] queue = new int[SIZE];
+        int head = 0;
+        int tail = 0;
+
+        for(int index = 0; index < SIZE; index++){
+            if(!isLegal(index, kind)){
+                continue;
+            }
+            int strongKing = index >>> 6 & 63;
+            int weakKing = index & 63;
+            int piece = index >>> 12 & 63;
+            if((index & WEAK_TO_MOVE) != 0){
+                int moves = 0;
+                for(long targets = Bitboards.kingAttacksFrom(weakKing) & ~Bitboards.bit(strongKing); targets != 0; targets &= targets - 1){
+                    int to = Long.numberOfTrailingZeros(targets);
+                    // Taking the piece leaves two bare kings, a move that never loses
+                    boolean capture = to == piece && (Bitboards.kingAttacksFrom(strongKing) & Bitboards.bit(piece)) == 0;
+                    if(capture || to != piece && isLegal(index(strongKing, to, piece, false), kind)){
+                        moves++;
+                    }
+                }
+                movesLeft[index] = (byte) moves;
+                if(moves == 0 && (attacks(kind, piece, Bitboards.bit(strongKing) | Bitboards.bit(weakKing)) & Bitboards.bit(weakKing)) != 0){
+                    wins[index >>> 6] |= 1L << index;
+                    queue[tail++] = index;
+                }
+            }
+            else if(kind == PAWN && promotesToWin(strongKing, weakKing, piece)){
+                wins[index >>> 6] |= 1L << index;
+                queue[tail++] = index;
+            }
+        }
+
+        while(head < tail){
+            int index = queue[head++];
+            int strongKing = index >>> 6 & 63;
+            int weakKing = index & 63;
+            int piece = index >>> 12 & 63;
+            long occupied = Bitboards.bit(strongKing) | Bitboards.bit(weakKing) | Bitboards.bit(piece);
+
+            if((index & WEAK_TO_MOVE) != 0){
+                // The strong side moved last, with its king or its piece
+                for(long from = Bitboards.kingAttacksFrom(strongKing) & ~occupied; from != 0; from &= from - 1){
+                    tail = winStrong(index(Long.numberOfTrailingZeros(from), weakKing, piece, false), kind, wins, queue, tail);
+                }
+                for(long from = unmoves(kind, piece, occupied); from != 0; from &= from - 1){
+                    tail = winStrong(index(strongKing, weakKing, Long.numberOfTrailingZeros(from), false), kind, wins, queue, tail);
+                }
+            }
+            else{
+                // The weak side moved last, with its king
+                for(long from = Bitboards.kingAttacksFrom(weakKing) & ~occupied; from != 0; from &= from - 1){
+                    int previous = index(strongKing, Long.numberOfTrailingZeros(from), piece, true);
+                    if(isLegal(previous, kind) && !isWin(wins, previous) && --movesLeft[previous] == 0){
+                        wins[previous >>> 6] |= 1L << previous;
+                        queue[tail++] = previous;
+                    }
+                }
+            }
+        }
+        return wins;
+    }
+
+    /**
+     * Marks a strong to move position won, as one of its moves wins
+     * @return the new end of the queue
+     */
+    private static int winStrong(int index, int kind, long[] wins, int[] queue, int tail){
+        if(isLegal(index, kind) && !isWin(wins, index)){
+            wins[index >>> 6] |= 1L << index;
+            queue[tail++] = index;
+        }
+        return tail;
+    }
+
+    /**
+     * Checks whether an index is a position that can come up in a game
+     * The pieces must stand on different squares, the kings apart, pawns off the first and last ranks,
+     * and the side that just moved must not be left in check
+     */
+    private static boolean isLegal(int index, int kind){
+        int strongKing = index >>> 6 & 63;
+        int weakKing = index & 63;
+        int piece = index >>> 12 & 63;
+        if(strongKing == weakKing || piece == strongKing || piece == weakKing
+                || (Bitboards.kingAttacksFrom(strongKing) & Bitboards.bit(weakKing)) != 0){
+            return false;
+        }
+        if(kind == PAWN && (piece < 8 || piece >= 56)){
+            return false;
+        }
+        return (index & WEAK_TO_MOVE) != 0
+                || (attacks(kind, piece, Bitboards.bit(strongKing) | Bitboards.bit(weakKing)) & Bitboards.bit(weakKing)) == 0;
+    }
+
+    /**
+     * Gets the squares the strong side's piece attacks
+     */
+    private static long attacks(int kind, int square, long occupied){
+        switch(kind){
+            case PAWN:
+                return Bitboards.pawnAttacksFrom(square, WHITE);
+            case ROOK:
+                return Bitboards.rookAttacksFrom(square, occupied);
+            default:
+                return Bitboards.queenAttacksFrom(square, occupied);
+        }
+    }
+
+    /**
+     * Gets the squares the strong side's piece could have moved from to reach a square, the reverse of its moves
+     * Promotions lead out of the endgame, so they are found forwards by promotesToWin instead
+     */
+    private static long unmoves(int kind, int square, long occupied){
+        if(kind != PAWN){
+            return attacks(kind, square, occupied) & ~occupied;
+        }
+        long from = 0L;
+        if(square >= 16 && (occupied & Bitboards.bit(square - 8)) == 0){
+            from |= Bitboards.bit(square - 8);
+            // A double push from the second rank passes the square in between
+            if(Bitboards.rank(square) == 3 && (occupied & Bitboards.bit(square - 16)) == 0){
+                from |= Bitboards.bit(square - 16);
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Checks whether the strong side, to move, wins at once by promoting its pawn to a queen or a rook
+     */
+    private static boolean promotesToWin(int strongKing, int weakKing, int pawn){
+        int to = pawn + 8;
+        if(to < 56 || to == strongKing || to == weakKing){
+            return false;
+        }
+        int index = index(strongKing, weakKing, to, true);
+        return isWin(QueenTable.WINS, index) || isWin(RookTable.WINS, index);
+    }
+}
@@ -0,0 +1,315 @@
+package dev.huntstew.retrochess.engine;
+
+/**
+ * Static helpers for 64-bit bitboards
+ * Square 0 is A1 and square 63 is H8, so a square index is rank * 8 + file
+ * Attacks of a single piece are looked up in tables built once when the class loads, sliders by cutting their rays at the first blocker
+ * Attacks of whole sets of leapers and pawns are also available, using shifts and masks instead of walking the board
+ */
+public final class Bitboards {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_B = FILE_A << 1;
+    public static final long FILE_G = FILE_A << 6;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_2 = RANK_1 << 8;
+    public static final long RANK_4 = RANK_1 << 24;
+    public static final long RANK_5 = RANK_1 << 32;
+    public static final long RANK_7 = RANK_1 << 48;
+    public static final long RANK_8 = RANK_1 << 56;
+    /** Every square of the same color as A8 */
+    public static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+    /** Every square of the same color as A1 */
+    public static final long DARK_SQUARES = ~LIGHT_SQUARES;
+
+    /** ray directions, the first four run towards higher squares and the last four towards lower ones */
+    public static final int NORTH = 0;
+    public static final int EAST = 1;
+    public static final int NORTH_EAST = 2;
+    public static final int NORTH_WEST = 3;
+    public static final int SOUTH = 4;
+    public static final int WEST = 5;
+    public static final int SOUTH_WEST = 6;
+    public static final int SOUTH_EAST = 7;
+    /** the file and rank step of each direction */
+    private static final int[][] STEPS = {{0, 1}, {1, 0}, {1, 1}, {-1, 1}, {0, -1}, {-1, 0}, {-1, -1}, {1, -1}};
+
+    private static final long NOT_A = ~FILE_A;
+    private static final long NOT_H = ~FILE_H;
+    private static final long NOT_AB = ~(FILE_A | FILE_B);
+    private static final long NOT_GH = ~(FILE_G | FILE_H);
+
+    /** knight attacks from each square */
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    /** king attacks from each square */
+    private static final long[] KING_ATTACKS = new long[64];
+    /** pawn captures from each square, indexed by color then square */
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+    /** the single push of a pawn from each square, indexed by color then square */
+    private static final long[][] PAWN_PUSHES = new long[2][64];
+    /** every square from each square to the edge in each direction, not including the square itself, indexed by direction then square */
+    private static final long[][] RAYS = new long[8][64];
+    /** bishop and rook attacks from each square on an empty board */
+    private static final long[] BISHOP_RAYS = new long[64];
+    private static final long[] ROOK_RAYS = new long[64];
+    /** squares strictly between two squares on a shared line, empty if they are not aligned */
+    private static final long[][] BETWEEN = new long[64][64];
+    /** the whole line through two aligned squares, edge to edge, empty if they are not aligned */
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        for(int square = 0; square < 64; square++){
+            KNIGHT_ATTACKS[square] = knightAttacks(bit(square));
+            KING_ATTACKS[square] = kingAttacks(bit(square));
+            PAWN_ATTACKS[Pieces.WHITE][square] = pawnAttacks(bit(square), Pieces.WHITE);
+            PAWN_ATTACKS[Pieces.BLACK][square] = pawnAttacks(bit(square), Pieces.BLACK);
+            PAWN_PUSHES[Pieces.WHITE][square] = north(bit(square));
+            PAWN_PUSHES[Pieces.BLACK][square] = south(bit(square));
+
+            for(int direction = 0; direction < 8; direction++){
+                int file = file(square) + STEPS[direction][0];
+                int rank = rank(square) + STEPS[direction][1];
+                while(file >= 0 && file < 8 && rank >= 0 && rank < 8){
+                    RAYS[direction][square] |= bit(square(file, rank));
+                    file += STEPS[direction][0];
+                    rank += STEPS[direction][1];
+                }
+            }
+            BISHOP_RAYS[square] = RAYS[NORTH_EAST][square] | RAYS[NORTH_WEST][square] | RAYS[SOUTH_WEST][square] | RAYS[SOUTH_EAST][square];
+            ROOK_RAYS[square] = RAYS[NORTH][square] | RAYS[EAST][square] | RAYS[SOUTH][square] | RAYS[WEST][square];
+        }
+
+        for(int from = 0; from < 64; from++){
+            for(int direction = 0; direction < 8; direction++){
+                // The opposite direction is four along, so every line is both rays through from
+                int opposite = direction ^ 4;
+                long line = RAYS[direction][from] | RAYS[opposite][from] | bit(from);
+                for(long targets = RAYS[direction][from]; targets != 0; targets &= targets - 1){
+                    int to = Long.numberOfTrailingZeros(targets);
+                    BETWEEN[from][to] = RAYS[direction][from] & RAYS[opposite][to];
+                    LINE[from][to] = line;
+                }
+            }
+        }
+    }
+
+    private Bitboards(){}
+
+    /**
+     * Gets a bitboard with only the given square set
+     * @param square the square, 0-63
+     * @return the bitboard
+     */
+    public static long bit(int square){
+        return 1L << square;
+    }
+
+    /**
+     * Gets the square index of a file and rank
+     * @param file the file, 0 for A
+     * @param rank the rank, 0 for the first rank
+     * @return the square index
+     */
+    public static int square(int file, int rank){
+        return rank << 3 | file;
+    }
+
+    public static int file(int square){
+        return square & 7;
+    }
+
+    public static int rank(int square){
+        return square >>> 3;
+    }
+
+    /**
+     * Gets the squares strictly between two squares on a rank, file or diagonal
+     * @param from the first square
+     * @param to the second square
+     * @return the squares between, empty if the squares are not aligned or adjacent
+     */
+    public static long between(int from, int to){
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * Gets the full line through two squares on a rank, file or diagonal
+     * @param from the first square
+     * @param to the second square
+     * @return the line from edge to edge, empty if the squares are not aligned
+     */
+    public static long line(int from, int to){
+        return LINE[from][to];
+    }
+
+    /**
+     * Looks up the attacks of a knight on one square
+     * @param square the square of the knight
+     * @return the attacked squares
+     */
+    public static long knightAttacksFrom(int square){
+        return KNIGHT_ATTACKS[square];
+    }
+
+    /**
+     * Looks up the attacks of a king on one square
+     * @param square the square of the king
+     * @return the attacked squares
+     */
+    public static long kingAttacksFrom(int square){
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * Looks up the captures of a pawn on one square
+     * Since pawn attacks are mirrored, pawnAttacksFrom(square, color) is also where pawns of the other color attack square from
+     * @param square the square of the pawn
+     * @param color the color of the pawn
+     * @return the attacked squares
+     */
+    public static long pawnAttacksFrom(int square, int color){
+        return PAWN_ATTACKS[color][square];
+    }
+
+    /**
+     * Looks up the single push of a pawn on one square, double pushes are a second push from the square it lands on
+     * @param square the square of the pawn
+     * @param color the color of the pawn
+     * @return the square in front of the pawn, empty on the last rank
+     */
+    public static long pawnPushFrom(int square, int color){
+        return PAWN_PUSHES[color][square];
+    }
+
+    /**
+     * Looks up every square from a square to the edge of the board in one direction
+     * @param square the starting square, not included
+     * @param direction NORTH through SOUTH_EAST
+     * @return the ray
+     */
+    public static long ray(int square, int direction){
+        return RAYS[direction][square];
+    }
+
+    /**
+     * Gets the attacks of a bishop on one square
+     * Each ray stops at, and includes, the first occupied square
+     * @param square the square of the bishop
+     * @param occupied every occupied square
+     * @return the attacked squares
+     */
+    public static long bishopAttacksFrom(int square, long occupied){
+        return rayAttacks(square, occupied, NORTH_EAST) | rayAttacks(square, occupied, NORTH_WEST)
+                | rayAttacks(square, occupied, SOUTH_WEST) | rayAttacks(square, occupied, SOUTH_EAST);
+    }
+
+    /**
+     * Gets the attacks of a rook on one square
+     * Each ray stops at, and includes, the first occupied square
+     * @param square the square of the rook
+     * @param occupied every occupied square
+     * @return the attacked squares
+     */
+    public static long rookAttacksFrom(int square, long occupied){
+        return rayAttacks(square, occupied, NORTH) | rayAttacks(square, occupied, EAST)
+                | rayAttacks(square, occupied, SOUTH) | rayAttacks(square, occupied, WEST);
+    }
+
+    /**
+     * Gets the attacks of a queen on one square
+     * @param square the square of the queen
+     * @param occupied every occupied square
+     * @return the attacked squares
+     */
+    public static long queenAttacksFrom(int square, long occupied){
+        return bishopAttacksFrom(square, occupied) | rookAttacksFrom(square, occupied);
+    }
+
+    /**
+     * Looks up the attacks of a bishop on one square of an empty board
+     * @param square the square of the bishop
+     * @return every square on its diagonals
+     */
+    public static long bishopRaysFrom(int square){
+        return BISHOP_RAYS[square];
+    }
+
+    /**
+     * Looks up the attacks of a rook on one square of an empty board
+     * @param square the square of the rook
+     * @return every square on its rank and file
+     */
+    public static long rookRaysFrom(int square){
+        return ROOK_RAYS[square];
+    }
+
+    /**
+     * Cuts a ray at its first blocker by removing the ray of the same direction from behind it
+     * @param square the square the ray starts from
+     * @param occupied every occupied square
+     * @param direction NORTH through SOUTH_EAST
+     * @return the ray up to and including the first blocker
+     */
+    private static long rayAttacks(int square, long occupied, int direction){
+        long ray = RAYS[direction][square];
+        long blockers = ray & occupied;
+        if(blockers == 0){
+            return ray;
+        }
+        // Rays towards higher squares meet their lowest blocker first, the others their highest
+        int blocker = direction < SOUTH ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+        return ray ^ RAYS[direction][blocker];
+    }
+
+    public static long north(long b){
+        return b << 8;
+    }
+
+    public static long south(long b){
+        return b >>> 8;
+    }
+
+    public static long east(long b){
+        return (b & NOT_H) << 1;
+    }
+
+    public static long west(long b){
+        return (b & NOT_A) >>> 1;
+    }
+
+    /**
+     * Gets all squares attacked by a set of knights
+     * @param knights the knights
+     * @return the attacked squares
+     */
+    public static long knightAttacks(long knights){
+        return ((knights & NOT_H) << 17) | ((knights & NOT_A) << 15)
+                | ((knights & NOT_GH) << 10) | ((knights & NOT_AB) << 6)
+                | ((knights & NOT_A) >>> 17) | ((knights & NOT_H) >>> 15)
+                | ((knights & NOT_AB) >>> 10) | ((knights & NOT_GH) >>> 6);
+    }
+
+    /**
+     * Gets all squares attacked by a set of kings
+     * @param kings the kings
+     * @return the attacked squares
+     */
+    public static long kingAttacks(long kings){
+        long sides = east(kings) | west(kings);
+        long row = sides | kings;
+        return sides | north(row) | south(row);
+    }
+
+    /**
+     * Gets all squares attacked by a set of pawns
+     * @param pawns the pawns
+     * @param color the color of the pawns, which determines their direction
+     * @return the attacked squares
+     */
+    public static long pawnAttacks(long pawns, int color){
+        if(color == Pieces.WHITE){
+            return ((pawns & NOT_A) << 7) | ((pawns & NOT_H) << 9);
+        }
+        return ((pawns & NOT_A) >>> 9) | ((pawns & NOT_H) >>> 7);
+    }
+}
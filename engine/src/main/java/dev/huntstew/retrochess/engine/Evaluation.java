@@ -0,0 +1,126 @@
+package dev.huntstew.retrochess.engine;
+
+import static dev.huntstew.retrochess.engine.Pieces.BLACK;
+import static dev.huntstew.retrochess.engine.Pieces.PAWN;
+import static dev.huntstew.retrochess.engine.Pieces.QUEEN;
+import static dev.huntstew.retrochess.engine.Pieces.WHITE;
+
+/**
+ * Static evaluation of a position in centipawns, material plus piece-square tables
+ * The king uses separate middlegame and endgame tables, blended by how much non-pawn material is left
+ */
+public final class Evaluation {
+    /** value of each piece kind, the king is never traded so it is worth nothing */
+    public static final int[] VALUES = {100, 320, 330, 500, 900, 0};
+
+    /** game phase each kind adds, 24 with all pieces on the board */
+    private static final int[] PHASE = {0, 1, 1, 2, 4, 0};
+    private static final int MAX_PHASE = 24;
+
+    // Tables are written from white's side with rank 8 first, so a white piece on a square reads index square ^ 56
+    private static final int[] PAWN_TABLE = {
+             0,   0,   0,   0,   0,   0,   0,   0,
+            50,  50,  50,  50,  50,  50,  50,  50,
+            10,  10,  20,  30,  30,  20,  10,  10,
+             5,   5,  10,  25,  25,  10,   5,   5,
+             0,   0,   0,  20,  20,   0,   0,   0,
+             5,  -5, -10,   0,   0, -10,  -5,   5,
+             5,  10,  10, -20, -20,  10,  10,   5,
+             0,   0,   0,   0,   0,   0,   0,   0
+    };
+    private static final int[] KNIGHT_TABLE = {
+           -50, -40, -30, -30, -30, -30, -40, -50,
+           -40, -20,   0,   0,   0,   0, -20, -40,
+           -30,   0,  10,  15,  15,  10,   0, -30,
+           -30,   5,  15,  20,  20,  15,   5, -30,
+           -30,   0,  15,  20,  20,  15,   0, -30,
+           -30,   5,  10,  15,  15,  10,   5, -30,
+           -40, -20,   0,   5,   5,   0, -20, -40,
+           -50, -40, -30, -30, -30, -30, -40, -50
+    };
+    private static final int[] BISHOP_TABLE = {
+           -20, -10, -10, -10, -10, -10, -10, -20,
+           -10,   0,   0,   0,   0,   0,   0, -10,
+           -10,   0,   5,  10,  10,   5,   0, -10,
+           -10,   5,   5,  10,  10,   5,   5, -10,
+           -10,   0,  10,  10,  10,  10,   0, -10,
+           -10,  10,  10,  10,  10,  10,  10, -10,
+           -10,   5,   0,   0,   0,   0,   5, -10,
+           -20, -10, -10, -10, -10, -10, -10, -20
+    };
+    private static final int[] ROOK_TABLE = {
+             0,   0,   0,   0,   0,   0,   0,   0,
+             5,  10,  10,  10,  10,  10,  10,   5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+             0,   0,   0,   5,   5,   0,   0,   0
+    };
+    private static final int[] QUEEN_TABLE = {
+           -20, -10, -10,  -5,  -5, -10, -10, -20,
+           -10,   0,   0,   0,   0,   0,   0, -10,
+           -10,   0,   5,   5,   5,   5,   0, -10,
+            -5,   0,   5,   5,   5,   5,   0,  -5,
+             0,   0,   5,   5,   5,   5,   0,  -5,
+           -10,   5,   5,   5,   5,   5,   0, -10,
+           -10,   0,   5,   0,   0,   0,   0, -10,
+           -20, -10, -10,  -5,  -5, -10, -10, -20
+    };
+    private static final int[] KING_MIDDLEGAME_TABLE = {
+           -30, -40, -40, -50, -50, -40, -40, -30,
+           -30, -40, -40, -50, -50, -40, -40, -30,
+           -30, -40, -40, -50, -50, -40, -40, -30,
+           -30, -40, -40, -50, -50, -40, -40, -30,
+           -20, -30, -30, -40, -40, -30, -30, -20,
+           -10, -20, -20, -20, -20, -20, -20, -10,
+            20,  20,   0,   0,   0,   0,  20,  20,
+            20,  30,  10,   0,   0,  10,  30,  20
+    };
+    private static final int[] KING_ENDGAME_TABLE = {
+           -50, -40, -30, -20, -20, -30, -40, -50,
+           -30, -20, -10,   0,   0, -10, -20, -30,
+           -30, -10,  20,  30,  30,  20, -10, -30,
+           -30, -10,  30,  40,  40,  30, -10, -30,
+           -30, -10,  30,  40,  40,  30, -10, -30,
+           -30, -10,  20,  30,  30,  20, -10, -30,
+           -30, -30,   0,   0,   0,   0, -30, -30,
+           -50, -30, -30, -30, -30, -30, -30, -50
+    };
+    private static final int[][] TABLES = {PAWN_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE};
+
+    private Evaluation(){}
+
+    /**
+     * Evaluates a position from the point of view of the side to move
+     * @param position the position
+     * @return the score in centipawns, positive when the side to move is better
+     */
+    public static int evaluate(Position position){
+        int score = 0;
+        int phase = 0;
+
+        for(int kind = PAWN; kind <= QUEEN; kind++){
+            int[] table = TABLES[kind];
+            for(long pieces = position.pieces(WHITE, kind); pieces != 0; pieces &= pieces - 1){
+                score += VALUES[kind] + table[Long.numberOfTrailingZeros(pieces) ^ 56];
+                phase += PHASE[kind];
+            }
+            for(long pieces = position.pieces(BLACK, kind); pieces != 0; pieces &= pieces - 1){
+                score -= VALUES[kind] + table[Long.numberOfTrailingZeros(pieces)];
+                phase += PHASE[kind];
+            }
+        }
+
+        // Promotions can take the phase past the starting material
+        phase = Math.min(phase, MAX_PHASE);
+        int whiteKing = position.kingSquare(WHITE) ^ 56;
+        int blackKing = position.kingSquare(BLACK);
+        int middlegame = KING_MIDDLEGAME_TABLE[whiteKing] - KING_MIDDLEGAME_TABLE[blackKing];
+        int endgame = KING_ENDGAME_TABLE[whiteKing] - KING_ENDGAME_TABLE[blackKing];
+        score += (middlegame * phase + endgame * (MAX_PHASE - phase)) / MAX_PHASE;
+
+        return position.getSideToMove() == WHITE ? score : -score;
+    }
+}
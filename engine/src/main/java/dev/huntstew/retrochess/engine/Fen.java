@@ -0,0 +1,226 @@
+package dev.huntstew.retrochess.engine;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation
+ * The six fields are the piece placement from rank 8 down, the side to move, castling rights, en passant square,
+ * halfmove clock and fullmove number, the last two may be left out
+ * Reading scans the string in place, so loading into a reused Position allocates nothing
+ */
+public final class Fen {
+    public static final String STARTING_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /** FEN letters of the piece kinds, lower case for black */
+    private static final String PIECE_LETTERS = "pnbrqk";
+    /** FEN letters of the castling rights, in the order of their bits */
+    private static final String CASTLING_LETTERS = "KQkq";
+
+    private Fen(){}
+
+    /**
+     * Reads a position
+     * @param fen the FEN string
+     * @return the position
+     * @throws IllegalArgumentException if the string is not a valid FEN
+     */
+    public static Position parse(String fen){
+        Position position = new Position();
+        load(fen, position);
+        return position;
+    }
+
+    /**
+     * Reads a position into an existing one, replacing everything in it including its move history
+     * @param fen the FEN string
+     * @param position the position to load into
+     * @throws IllegalArgumentException if the string is not a valid FEN
+     */
+    public static void load(String fen, Position position){
+        position.clear();
+
+        int index = skipSpaces(fen, 0);
+        int rank = 7;
+        int file = 0;
+        for(; index < fen.length() && fen.charAt(index) != ' '; index++){
+            char c = fen.charAt(index);
+            if(c == '/' && file == 8 && rank > 0){
+                rank--;
+                file = 0;
+            }
+            else if(c >= '1' && c <= '8' && file + c - '0' <= 8){
+                file += c - '0';
+            }
+            else{
+                int kind = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+                if(kind < 0 || file > 7){
+                    throw new IllegalArgumentException("Bad piece placement: " + fen);
+                }
+                position.put(Bitboards.square(file++, rank), Pieces.make(Character.isUpperCase(c) ? Pieces.WHITE : Pieces.BLACK, kind));
+            }
+        }
+        if(rank != 0 || file != 8){
+            throw new IllegalArgumentException("Piece placement does not cover the board: " + fen);
+        }
+        if(Long.bitCount(position.pieces(Pieces.WHITE, Pieces.KING)) != 1 || Long.bitCount(position.pieces(Pieces.BLACK, Pieces.KING)) != 1){
+            throw new IllegalArgumentException("Each side needs exactly one king: " + fen);
+        }
+
+        index = skipSpaces(fen, index);
+        if(fieldEnd(fen, index) != index + 1 || fen.charAt(index) != 'w' && fen.charAt(index) != 'b'){
+            throw new IllegalArgumentException("Bad side to move: " + fen);
+        }
+        position.setSideToMove(fen.charAt(index) == 'w' ? Pieces.WHITE : Pieces.BLACK);
+
+        index = skipSpaces(fen, index + 1);
+        int end = fieldEnd(fen, index);
+        int rights = 0;
+        if(end == index){
+            throw new IllegalArgumentException("Missing castling rights: " + fen);
+        }
+        if(end != index + 1 || fen.charAt(index) != '-'){
+            for(; index < end; index++){
+                int right = CASTLING_LETTERS.indexOf(fen.charAt(index));
+                if(right < 0){
+                    throw new IllegalArgumentException("Bad castling rights: " + fen);
+                }
+                // Dropped unless the king and rook stand on their home squares, castling moves them from there
+                int color = right >> 1;
+                int backRank = color == Pieces.WHITE ? 0 : 56;
+                int rookSquare = backRank + ((right & 1) == 0 ? 7 : 0);
+                if(position.pieceAt(backRank + 4) == Pieces.make(color, Pieces.KING) && position.pieceAt(rookSquare) == Pieces.make(color, Pieces.ROOK)){
+                    rights |= 1 << right;
+                }
+            }
+        }
+        position.setCastlingRights(rights);
+
+        index = skipSpaces(fen, end);
+        end = fieldEnd(fen, index);
+        if(end == index + 2){
+            int square = parseSquare(fen, index);
+            // The pawn that skipped the square belongs to the side not to move, so it is on rank 6 with white to move and rank 3 with black
+            if(Bitboards.rank(square) != (position.getSideToMove() == Pieces.WHITE ? 5 : 2)){
+                throw new IllegalArgumentException("Bad en passant square: " + fen);
+            }
+            // Only kept when a pawn can capture, as makeMove does, so the key matches the same position reached by moves
+            int capturer = position.getSideToMove();
+            if((Bitboards.pawnAttacksFrom(square, capturer ^ 1) & position.pieces(capturer, Pieces.PAWN)) != 0){
+                position.setEnPassantSquare(square);
+            }
+        }
+        else if(end != index + 1 || fen.charAt(index) != '-'){
+            throw new IllegalArgumentException("Bad en passant square: " + fen);
+        }
+
+        index = skipSpaces(fen, end);
+        if(index < fen.length()){
+            end = fieldEnd(fen, index);
+            position.setHalfmoveClock(parseNumber(fen, index, end));
+            index = skipSpaces(fen, end);
+            if(index < fen.length()){
+                position.setFullmoveNumber(Math.max(1, parseNumber(fen, index, fieldEnd(fen, index))));
+            }
+        }
+    }
+
+    /**
+     * Writes a position
+     * @param position the position
+     * @return the FEN string, with all six fields
+     */
+    public static String format(Position position){
+        StringBuilder fen = new StringBuilder(90);
+        for(int rank = 7; rank >= 0; rank--){
+            int empty = 0;
+            for(int file = 0; file < 8; file++){
+                int piece = position.pieceAt(Bitboards.square(file, rank));
+                if(piece == Pieces.NONE){
+                    empty++;
+                    continue;
+                }
+                if(empty > 0){
+                    fen.append(empty);
+                    empty = 0;
+                }
+                char letter = PIECE_LETTERS.charAt(Pieces.kind(piece));
+                fen.append(Pieces.color(piece) == Pieces.WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if(empty > 0){
+                fen.append(empty);
+            }
+            if(rank > 0){
+                fen.append('/');
+            }
+        }
+
+        fen.append(position.getSideToMove() == Pieces.WHITE ? " w " : " b ");
+        int rights = position.getCastlingRights();
+        if(rights == 0){
+            fen.append('-');
+        }
+        for(int right = 0; right < CASTLING_LETTERS.length(); right++){
+            if((rights & 1 << right) != 0){
+                fen.append(CASTLING_LETTERS.charAt(right));
+            }
+        }
+
+        int enPassantSquare = position.getEnPassantSquare();
+        if(enPassantSquare == Position.NO_SQUARE){
+            fen.append(" -");
+        }
+        else{
+            fen.append(' ').append((char) ('a' + Bitboards.file(enPassantSquare))).append((char) ('1' + Bitboards.rank(enPassantSquare)));
+        }
+        return fen.append(' ').append(position.getHalfmoveClock()).append(' ').append(position.getFullmoveNumber()).toString();
+    }
+
+    /**
+     * Reads a square name such as e3
+     * @param name the square name
+     * @return the square, 0 for a1 through 63 for h8
+     * @throws IllegalArgumentException if the name is not a square
+     */
+    public static int parseSquare(String name){
+        if(name.length() != 2){
+            throw new IllegalArgumentException("Bad square: " + name);
+        }
+        return parseSquare(name, 0);
+    }
+
+    private static int parseSquare(String text, int index){
+        char file = text.charAt(index);
+        char rank = text.charAt(index + 1);
+        if(file < 'a' || file > 'h' || rank < '1' || rank > '8'){
+            throw new IllegalArgumentException("Bad square: " + text);
+        }
+        return Bitboards.square(file - 'a', rank - '1');
+    }
+
+    private static int parseNumber(String text, int start, int end){
+        if(start == end || end - start > 6){
+            throw new IllegalArgumentException("Bad move counter: " + text);
+        }
+        int number = 0;
+        for(int i = start; i < end; i++){
+            char c = text.charAt(i);
+            if(c < '0' || c > '9'){
+                throw new IllegalArgumentException("Bad move counter: " + text);
+            }
+            number = number * 10 + c - '0';
+        }
+        return number;
+    }
+
+    private static int skipSpaces(String text, int index){
+        while(index < text.length() && text.charAt(index) == ' '){
+            index++;
+        }
+        return index;
+    }
+
+    private static int fieldEnd(String text, int index){
+        while(index < text.length() && text.charAt(index) != ' '){
+            index++;
+        }
+        return index;
+    }
+}
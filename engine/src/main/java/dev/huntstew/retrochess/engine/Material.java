@@ -0,0 +1,211 @@
+package dev.huntstew.retrochess.engine;
+
+import static dev.huntstew.retrochess.engine.Pieces.BISHOP;
+import static dev.huntstew.retrochess.engine.Pieces.BLACK;
+import static dev.huntstew.retrochess.engine.Pieces.KING;
+import static dev.huntstew.retrochess.engine.Pieces.KNIGHT;
+import static dev.huntstew.retrochess.engine.Pieces.PAWN;
+import static dev.huntstew.retrochess.engine.Pieces.QUEEN;
+import static dev.huntstew.retrochess.engine.Pieces.ROOK;
+import static dev.huntstew.retrochess.engine.Pieces.WHITE;
+
+/**
+ * Material signatures, the number of each kind of piece of each side packed into a long
+ * Position keeps the signature of its pieces up to date as they are put and removed,
+ * so it can be used as a key for anything that depends only on the material, such as dead draws or endgame recognizers
+ * Each side has 24 bits, white from bit 0 and black from bit 24, holding 4 bit counts of, from the low bits up:
+ * pawns, knights, bishops on light squares, bishops on dark squares, rooks and queens. Kings are not counted.
+ */
+public final class Material {
+    public static final int PAWNS = 0;
+    public static final int KNIGHTS = 1;
+    public static final int LIGHT_BISHOPS = 2;
+    public static final int DARK_BISHOPS = 3;
+    public static final int ROOKS = 4;
+    public static final int QUEENS = 5;
+
+    private static final int FIELD_BITS = 4;
+    private static final int SIDE_BITS = 24;
+    /** every count that can mate by itself, pawns included as they can promote */
+    private static final long PAWNS_AND_MAJORS = sideMask(PAWNS, ROOKS, QUEENS) | sideMask(PAWNS, ROOKS, QUEENS) << SIDE_BITS;
+    /** counts of minor pieces are capped at this in the lookup index, no rule needs to tell more apart */
+    private static final int MINOR_CAP = 3;
+
+    /** what adding each piece code to each square adds to the signature */
+    private static final long[][] DELTAS = new long[Pieces.CODES][64];
+    /** whether a signature with only minor pieces is a dead draw, indexed by minorIndex */
+    private static final boolean[] INSUFFICIENT = new boolean[1 << 12];
+
+    static {
+        for(int color = WHITE; color <= BLACK; color++){
+            for(int kind = PAWN; kind < KING; kind++){
+                for(int square = 0; square < 64; square++){
+                    DELTAS[Pieces.make(color, kind)][square] = 1L << (color * SIDE_BITS + field(kind, square) * FIELD_BITS);
+                }
+            }
+        }
+        for(int index = 0; index < INSUFFICIENT.length; index++){
+            INSUFFICIENT[index] = isDead(index & 63, index >>> 6);
+        }
+    }
+
+    private Material(){}
+
+    /**
+     * Gets what a piece adds to the signature, kings add nothing
+     * @param piece the piece code
+     * @param square the square it stands on, which decides the field of a bishop
+     * @return the amount to add when the piece is put down and subtract when it is taken away
+     */
+    static long delta(int piece, int square){
+        return DELTAS[piece][square];
+    }
+
+    /**
+     * Gets one count from a signature
+     * @param signature the signature
+     * @param color the side
+     * @param field PAWNS through QUEENS
+     * @return the number of those pieces the side has
+     */
+    public static int count(long signature, int color, int field){
+        return (int) (signature >>> (color * SIDE_BITS + field * FIELD_BITS)) & 15;
+    }
+
+    /**
+     * Checks whether neither side could ever mate, whatever the moves, with a single table lookup
+     * A side can not mate with at most a king and one minor piece, and nobody can when every bishop on the board stands on the same color of square
+     * and there are no other pieces but kings. Opposite colored bishops on either side can still mate, so they count as winnable.
+     * @param signature the signature of the position
+     * @return true if the position is a dead draw by material
+     */
+    public static boolean isInsufficient(long signature){
+        return (signature & PAWNS_AND_MAJORS) == 0 && INSUFFICIENT[minorIndex(signature)];
+    }
+
+    /**
+     * Works out the signature of a position from scratch, Position.getMaterial gives the same in constant time
+     * @param position the position
+     * @return the signature
+     */
+    public static long of(Position position){
+        long signature = 0;
+        for(long occupied = position.occupied(); occupied != 0; occupied &= occupied - 1){
+            int square = Long.numberOfTrailingZeros(occupied);
+            signature += DELTAS[position.pieceAt(square)][square];
+        }
+        return signature;
+    }
+
+    /**
+     * Reads a signature written as the pieces of white then black, each starting with its king, such as KRK or KBNK
+     * Bishops are taken to stand on light squares unless written as lowercase d, as in KBdK
+     * @param pieces the pieces, letters from PNBRQ after each K
+     * @return the signature
+     * @throws IllegalArgumentException if the text is not two kings and their pieces
+     */
+    public static long parse(String pieces){
+        int black = pieces.indexOf('K', 1);
+        if(pieces.isEmpty() || pieces.charAt(0) != 'K' || black < 0){
+            throw new IllegalArgumentException("Expected two kings: " + pieces);
+        }
+        long signature = 0;
+        for(int i = 1; i < pieces.length(); i++){
+            int side = i > black ? SIDE_BITS : 0;
+            int field;
+            switch(pieces.charAt(i)){
+                case 'K':
+                    if(i != black){
+                        throw new IllegalArgumentException("Expected two kings: " + pieces);
+                    }
+                    continue;
+                case 'P':
+                    field = PAWNS;
+                    break;
+                case 'N':
+                    field = KNIGHTS;
+                    break;
+                case 'B':
+                    field = LIGHT_BISHOPS;
+                    break;
+                case 'd':
+                    field = DARK_BISHOPS;
+                    break;
+                case 'R':
+                    field = ROOKS;
+                    break;
+                case 'Q':
+                    field = QUEENS;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown piece " + pieces.charAt(i) + ": " + pieces);
+            }
+            signature += 1L << (side + field * FIELD_BITS);
+        }
+        return signature;
+    }
+
+    /**
+     * Gets the field a piece is counted in
+     */
+    private static int field(int kind, int square){
+        switch(kind){
+            case PAWN:
+                return PAWNS;
+            case KNIGHT:
+                return KNIGHTS;
+            case BISHOP:
+                return (Bitboards.LIGHT_SQUARES & Bitboards.bit(square)) != 0 ? LIGHT_BISHOPS : DARK_BISHOPS;
+            case ROOK:
+                return ROOKS;
+            default:
+                return QUEENS;
+        }
+    }
+
+    private static long sideMask(int... fields){
+        long mask = 0;
+        for(int field : fields){
+            mask |= 15L << (field * FIELD_BITS);
+        }
+        return mask;
+    }
+
+    /**
+     * Packs the minor piece counts of both sides, each capped at MINOR_CAP, into 12 bits
+     * From the low bits up for white then black: knights, light bishops and dark bishops, 2 bits each
+     */
+    private static int minorIndex(long signature){
+        int index = 0;
+        for(int color = WHITE; color <= BLACK; color++){
+            for(int field = KNIGHTS; field <= DARK_BISHOPS; field++){
+                index |= Math.min(count(signature, color, field), MINOR_CAP) << (color * 6 + (field - KNIGHTS) * 2);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Decides a lookup table entry
+     * @param white the minor piece counts of white, packed as in minorIndex
+     * @param black the minor piece counts of black
+     */
+    private static boolean isDead(int white, int black){
+        int knights = (white & 3) + (black & 3);
+        int light = (white >>> 2 & 3) + (black >>> 2 & 3);
+        int dark = (white >>> 4 & 3) + (black >>> 4 & 3);
+        if(knights == 0 && (light == 0 || dark == 0)){
+            // Bishops on one color of square can never attack a king on the other, so none can ever be mated
+            return true;
+        }
+        if(minorCount(white) > 1 || minorCount(black) > 1){
+            return false;
+        }
+        // Single minor pieces, mate is only possible with a bishop on each color of square
+        return light == 0 || dark == 0;
+    }
+
+    private static int minorCount(int side){
+        return (side & 3) + (side >>> 2 & 3) + (side >>> 4 & 3);
+    }
+}
@@ -0,0 +1,265 @@
+package dev.huntstew.retrochess.engine;
+
+import static dev.huntstew.retrochess.engine.Pieces.BISHOP;
+import static dev.huntstew.retrochess.engine.Pieces.KING;
+import static dev.huntstew.retrochess.engine.Pieces.KNIGHT;
+import static dev.huntstew.retrochess.engine.Pieces.NONE;
+import static dev.huntstew.retrochess.engine.Pieces.PAWN;
+import static dev.huntstew.retrochess.engine.Pieces.QUEEN;
+import static dev.huntstew.retrochess.engine.Pieces.ROOK;
+import static dev.huntstew.retrochess.engine.Pieces.WHITE;
+
+/**
+ * Legal move generation using check and pin masks
+ * prepare works out the checkers, pinned pieces and evasion mask of one side once per position,
+ * after which legalTargets only masks pseudo-legal targets instead of making each move and looking for check
+ */
+public final class MoveGenerator {
+    /** the squares pawns promote on */
+    private static final long LAST_RANKS = Bitboards.RANK_1 | Bitboards.RANK_8;
+
+    private Position position;
+    /** the side moves are generated for */
+    private int color;
+    /** the square of that side's king */
+    private int kingSquare;
+    /** enemy pieces giving check */
+    private long checkers;
+    /** friendly pieces pinned to the king */
+    private long pinned;
+    /** destinations that resolve a single check, every square when not in check */
+    private long evasionMask;
+    /** squares the king may not step to, enemy attacks computed as if the king were not there */
+    private long kingDanger;
+
+    /**
+     * Works out the check and pin information of one side, must be called again after the position changes
+     * @param position the position to generate moves on
+     * @param color the side to generate moves for
+     */
+    public void prepare(Position position, int color){
+        this.position = position;
+        this.color = color;
+        int enemy = color ^ 1;
+        kingSquare = position.kingSquare(color);
+        long king = Bitboards.bit(kingSquare);
+        long occupied = position.occupied();
+        long diagonal = position.pieces(enemy, BISHOP) | position.pieces(enemy, QUEEN);
+        long orthogonal = position.pieces(enemy, ROOK) | position.pieces(enemy, QUEEN);
+
+        checkers = position.attackersOf(kingSquare) & position.occupancy(enemy);
+
+        if(checkers == 0){
+            evasionMask = -1L;
+        }
+        else if(Long.bitCount(checkers) == 1){
+            int checker = Long.numberOfTrailingZeros(checkers);
+            evasionMask = checkers | Bitboards.between(kingSquare, checker);
+        }
+        else{
+            evasionMask = 0L;
+        }
+
+        // Any enemy slider that would see the king through exactly one friendly piece pins it
+        pinned = 0L;
+        long snipers = (Bitboards.bishopRaysFrom(kingSquare) & diagonal) | (Bitboards.rookRaysFrom(kingSquare) & orthogonal);
+        while(snipers != 0){
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.between(kingSquare, sniper) & occupied;
+            if(Long.bitCount(blockers) == 1){
+                pinned |= blockers & position.occupancy(color);
+            }
+        }
+
+        kingDanger = position.attacks(enemy, occupied ^ king);
+    }
+
+    /**
+     * Gets the legal destinations of the piece on a square
+     * @param square the square of the piece
+     * @return the destination squares, empty if there is no piece of the prepared side
+     */
+    public long legalTargets(int square){
+        int piece = position.pieceAt(square);
+        if(piece == NONE || Pieces.color(piece) != color){
+            return 0L;
+        }
+        long targets = position.pseudoLegalTargets(square);
+
+        if(Pieces.kind(piece) == KING){
+            long castles = targets & (Bitboards.bit(square + 2) | (square >= 2 ? Bitboards.bit(square - 2) : 0L));
+            targets &= ~castles & ~kingDanger;
+
+            // Castling is not allowed out of, through or into check
+            if(castles != 0 && checkers == 0){
+                if((castles & Bitboards.bit(square + 2)) != 0 && (kingDanger & (3L << (square + 1))) == 0){
+                    targets |= Bitboards.bit(square + 2);
+                }
+                if((castles & Bitboards.bit(square - 2)) != 0 && (kingDanger & (3L << (square - 2))) == 0){
+                    targets |= Bitboards.bit(square - 2);
+                }
+            }
+            return targets;
+        }
+
+        // Only the king can answer a double check
+        if(evasionMask == 0){
+            return 0L;
+        }
+
+        long mask = evasionMask;
+        if((pinned & Bitboards.bit(square)) != 0){
+            mask &= Bitboards.line(kingSquare, square);
+        }
+
+        int enPassantSquare = position.getEnPassantSquare();
+        if(Pieces.kind(piece) == PAWN && enPassantSquare != Position.NO_SQUARE && (targets & Bitboards.bit(enPassantSquare)) != 0){
+            long passant = Bitboards.bit(enPassantSquare);
+            return (targets & ~passant & mask) | (isLegalEnPassant(square, enPassantSquare) ? passant : 0L);
+        }
+        return targets & mask;
+    }
+
+    /**
+     * Fills a list with every legal move of one side, promotions once for each kind, queen first
+     * The generator is left prepared for that side
+     * @param position the position to generate moves on
+     * @param color the side to generate moves for
+     * @param moves the list to fill, cleared first
+     * @return the number of moves
+     */
+    public int generate(Position position, int color, MoveList moves){
+        prepare(position, color);
+        moves.clear();
+        for(long pieces = position.occupancy(color); pieces != 0; pieces &= pieces - 1){
+            int from = Long.numberOfTrailingZeros(pieces);
+            for(long targets = legalTargets(from); targets != 0; targets &= targets - 1){
+                int move = Moves.of(position, from, Long.numberOfTrailingZeros(targets), QUEEN);
+                moves.add(move);
+                if(Moves.flag(move) == Moves.PROMOTION){
+                    for(int kind = ROOK; kind >= KNIGHT; kind--){
+                        moves.add(Moves.promotion(from, Moves.to(move), kind));
+                    }
+                }
+            }
+        }
+        return moves.size();
+    }
+
+    /**
+     * Fills a list with the legal captures and queen promotions of the prepared side, en passant included
+     * Together with generateQuiet this gives every legal move, so a search can leave the quiet moves until it needs them
+     * @param moves the list to fill, cleared first
+     * @return the number of moves
+     */
+    public int generateNoisy(MoveList moves){
+        moves.clear();
+        long enemies = position.occupancy(color ^ 1);
+        long pawnTargets = enemies | LAST_RANKS | enPassantBit();
+        for(long pieces = position.occupancy(color); pieces != 0; pieces &= pieces - 1){
+            int from = Long.numberOfTrailingZeros(pieces);
+            long targets = legalTargets(from) & (Pieces.kind(position.pieceAt(from)) == PAWN ? pawnTargets : enemies);
+            for(; targets != 0; targets &= targets - 1){
+                moves.add(Moves.of(position, from, Long.numberOfTrailingZeros(targets), QUEEN));
+            }
+        }
+        return moves.size();
+    }
+
+    /**
+     * Fills a list with the legal moves of the prepared side that generateNoisy leaves out, the quiet moves and the underpromotions
+     * @param moves the list to fill, cleared first
+     * @return the number of moves
+     */
+    public int generateQuiet(MoveList moves){
+        moves.clear();
+        long enemies = position.occupancy(color ^ 1);
+        for(long pieces = position.occupancy(color); pieces != 0; pieces &= pieces - 1){
+            int from = Long.numberOfTrailingZeros(pieces);
+            long targets = legalTargets(from);
+            if(Pieces.kind(position.pieceAt(from)) == PAWN){
+                for(long promotions = targets & LAST_RANKS; promotions != 0; promotions &= promotions - 1){
+                    for(int kind = ROOK; kind >= KNIGHT; kind--){
+                        moves.add(Moves.promotion(from, Long.numberOfTrailingZeros(promotions), kind));
+                    }
+                }
+                targets &= ~LAST_RANKS & ~enPassantBit();
+            }
+            for(targets &= ~enemies; targets != 0; targets &= targets - 1){
+                moves.add(Moves.of(position, from, Long.numberOfTrailingZeros(targets), QUEEN));
+            }
+        }
+        return moves.size();
+    }
+
+    /**
+     * Checks whether a move is legal for the prepared side, such as a move from the transposition table that may come from another position
+     * @param move the move
+     * @return true if the move can be made
+     */
+    public boolean isLegal(int move){
+        int from = Moves.from(move);
+        int piece = position.pieceAt(from);
+        if(move == Moves.NO_MOVE || piece == NONE || Pieces.color(piece) != color){
+            return false;
+        }
+        // The flag must match what the move does here, a castle from another position may be a plain king move in this one
+        int promotion = Moves.promotionKind(move);
+        return Moves.of(position, from, Moves.to(move), promotion == NONE ? QUEEN : promotion) == move
+                && (legalTargets(from) & Bitboards.bit(Moves.to(move))) != 0;
+    }
+
+    private long enPassantBit(){
+        int square = position.getEnPassantSquare();
+        return square == Position.NO_SQUARE ? 0L : Bitboards.bit(square);
+    }
+
+    /**
+     * Checks whether a side has any legal move, stopping at the first piece found with one, for mate and stalemate detection
+     * The king is tried last, as it is the most expensive piece to check and most often has no move
+     * The generator is left prepared for that side
+     * @param position the position
+     * @param color the side
+     * @return true if the side has at least one legal move
+     */
+    public boolean hasAnyLegalMove(Position position, int color){
+        prepare(position, color);
+        long pieces = position.occupancy(color) & ~Bitboards.bit(kingSquare);
+        for(; pieces != 0; pieces &= pieces - 1){
+            if(legalTargets(Long.numberOfTrailingZeros(pieces)) != 0){
+                return true;
+            }
+        }
+        return legalTargets(kingSquare) != 0;
+    }
+
+    /**
+     * Checks an en passant capture by removing both pawns and looking for attacks on the king
+     * This catches the rare discovered checks along the rank, which pin masks do not see as two pieces leave it
+     * @param from the square of the capturing pawn
+     * @param to the en passant square
+     * @return true if the king is safe after the capture
+     */
+    private boolean isLegalEnPassant(int from, int to){
+        int captured = color == WHITE ? to - 8 : to + 8;
+        long occupied = (position.occupied() ^ Bitboards.bit(from) ^ Bitboards.bit(captured)) | Bitboards.bit(to);
+        return (position.attackersOf(kingSquare, occupied) & position.occupancy(color ^ 1) & ~Bitboards.bit(captured)) == 0;
+    }
+
+    /**
+     * Checks whether the prepared side is in check
+     * @return true if at least one enemy piece attacks the king
+     */
+    public boolean isInCheck(){
+        return checkers != 0;
+    }
+
+    public long getCheckers() {
+        return checkers;
+    }
+
+    public long getPinned() {
+        return pinned;
+    }
+}
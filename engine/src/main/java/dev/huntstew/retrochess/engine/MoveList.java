@@ -0,0 +1,51 @@
+package dev.huntstew.retrochess.engine;
+
+/**
+ * A reusable list of packed moves, see Moves for the layout
+ * The array is allocated once and refilled, so a search keeps one list per ply instead of creating collections
+ */
+public final class MoveList {
+    /** more than the most legal moves any position has, 218 */
+    public static final int CAPACITY = 256;
+
+    private final int[] moves = new int[CAPACITY];
+    private int size;
+
+    public void add(int move){
+        moves[size++] = move;
+    }
+
+    public int get(int index){
+        return moves[index];
+    }
+
+    /**
+     * Replaces the move at an index, used when sorting the list in place
+     * @param index the index to write
+     * @param move the new move
+     */
+    public void set(int index, int move){
+        moves[index] = move;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public void clear(){
+        size = 0;
+    }
+
+    /**
+     * Creates one list for every ply of a search, so no lists are created while searching
+     * @param plies the deepest ply the search can reach
+     * @return the lists, indexed by ply
+     */
+    public static MoveList[] perPly(int plies){
+        MoveList[] lists = new MoveList[plies];
+        for(int i = 0; i < plies; i++){
+            lists[i] = new MoveList();
+        }
+        return lists;
+    }
+}
@@ -0,0 +1,229 @@
+package dev.huntstew.retrochess.engine;
+
+import static dev.huntstew.retrochess.engine.Pieces.KING;
+import static dev.huntstew.retrochess.engine.Pieces.NONE;
+import static dev.huntstew.retrochess.engine.Pieces.PAWN;
+
+/**
+ * Hands out the legal moves of a position one at a time in stages, generating each stage only when the one before runs out:
+ * the hash move, captures that do not lose material by MVV-LVA, the killer moves, quiet moves by history and last the losing captures
+ * Most cutoffs come from the first few moves, so the quiet moves of most nodes are never generated
+ * A search keeps one picker per ply, as each has its own generator prepared for its position
+ */
+public final class MovePicker {
+    private static final int HASH = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int GOOD_CAPTURES = 2;
+    private static final int FIRST_KILLER = 3;
+    private static final int SECOND_KILLER = 4;
+    private static final int GENERATE_QUIETS = 5;
+    private static final int QUIETS = 6;
+    private static final int BAD_CAPTURES = 7;
+    private static final int DONE = 8;
+
+    private final MoveGenerator generator = new MoveGenerator();
+    private final StaticExchange exchange;
+    private final MoveList moves = new MoveList();
+    private final int[] scores = new int[MoveList.CAPACITY];
+    /** captures found to lose material, put off until every quiet move has been tried */
+    private final int[] badCaptures = new int[MoveList.CAPACITY];
+    private int badCaptureCount;
+
+    private Position position;
+    private int stage;
+    /** the next move of the current stage to hand out */
+    private int index;
+    private int hashMove;
+    private int firstKiller;
+    private int secondKiller;
+    private int[] history;
+    /** whether only captures and queen promotions are wanted, and no losing captures */
+    private boolean noisyOnly;
+
+    /**
+     * Creates a picker
+     * @param exchange the static exchange evaluator of the search, used to find losing captures
+     */
+    public MovePicker(StaticExchange exchange){
+        this.exchange = exchange;
+    }
+
+    /**
+     * Starts handing out every legal move of a position
+     * @param position the position, which must not change until the last move is handed out, apart from moves made and taken back
+     * @param hashMove the move to try first, Moves.NO_MOVE for none, skipped if not legal
+     * @param firstKiller a quiet move that caused a cutoff at the same ply, tried straight after the good captures
+     * @param secondKiller the killer before it
+     * @param history the history score of each from-to pair of the side to move
+     */
+    public void init(Position position, int hashMove, int firstKiller, int secondKiller, int[] history){
+        start(position, false);
+        this.hashMove = generator.isLegal(hashMove) ? hashMove : Moves.NO_MOVE;
+        this.firstKiller = firstKiller;
+        this.secondKiller = secondKiller;
+        this.history = history;
+    }
+
+    /**
+     * Starts handing out the captures and queen promotions that do not lose material, for the quiescence search
+     * In check every legal move is handed out instead, as any of them may be the only way out
+     * @param position the position
+     * @param history the history score of each from-to pair of the side to move, orders the evasions
+     */
+    public void initNoisy(Position position, int[] history){
+        start(position, true);
+        this.history = history;
+        if(generator.isInCheck()){
+            noisyOnly = false;
+        }
+    }
+
+    private void start(Position position, boolean noisyOnly){
+        this.position = position;
+        this.noisyOnly = noisyOnly;
+        generator.prepare(position, position.getSideToMove());
+        stage = HASH;
+        hashMove = Moves.NO_MOVE;
+        firstKiller = Moves.NO_MOVE;
+        secondKiller = Moves.NO_MOVE;
+        badCaptureCount = 0;
+    }
+
+    /**
+     * Checks whether the side to move is in check
+     * @return true if it is
+     */
+    public boolean isInCheck(){
+        return generator.isInCheck();
+    }
+
+    /**
+     * Hands out the next move
+     * @return the move, Moves.NO_MOVE once every move has been handed out
+     */
+    public int next(){
+        while(true){
+            switch(stage){
+                case HASH:
+                    stage = GENERATE_CAPTURES;
+                    if(hashMove != Moves.NO_MOVE){
+                        return hashMove;
+                    }
+                    break;
+                case GENERATE_CAPTURES:
+                    generator.generateNoisy(moves);
+                    scoreCaptures();
+                    index = 0;
+                    stage = GOOD_CAPTURES;
+                    break;
+                case GOOD_CAPTURES:
+                    while(index < moves.size()){
+                        int move = pickBest();
+                        if(move == hashMove){
+                            continue;
+                        }
+                        if(exchange.evaluate(position, move) < 0){
+                            if(!noisyOnly){
+                                badCaptures[badCaptureCount++] = move;
+                            }
+                            continue;
+                        }
+                        return move;
+                    }
+                    stage = noisyOnly ? DONE : FIRST_KILLER;
+                    break;
+                case FIRST_KILLER:
+                    stage = SECOND_KILLER;
+                    // A killer that is not tried here must not be skipped among the quiet moves either
+                    if(!isUsableKiller(firstKiller)){
+                        firstKiller = Moves.NO_MOVE;
+                        break;
+                    }
+                    return firstKiller;
+                case SECOND_KILLER:
+                    stage = GENERATE_QUIETS;
+                    if(secondKiller == firstKiller || !isUsableKiller(secondKiller)){
+                        secondKiller = Moves.NO_MOVE;
+                        break;
+                    }
+                    return secondKiller;
+                case GENERATE_QUIETS:
+                    generator.generateQuiet(moves);
+                    scoreQuiets();
+                    index = 0;
+                    stage = QUIETS;
+                    break;
+                case QUIETS:
+                    while(index < moves.size()){
+                        int move = pickBest();
+                        if(move != hashMove && move != firstKiller && move != secondKiller){
+                            return move;
+                        }
+                    }
+                    index = 0;
+                    stage = BAD_CAPTURES;
+                    break;
+                case BAD_CAPTURES:
+                    if(index < badCaptureCount){
+                        return badCaptures[index++];
+                    }
+                    stage = DONE;
+                    break;
+                default:
+                    return Moves.NO_MOVE;
+            }
+        }
+    }
+
+    /**
+     * Checks that a killer from a sibling node is a legal quiet move here and was not already handed out as the hash move
+     */
+    private boolean isUsableKiller(int killer){
+        return killer != Moves.NO_MOVE && killer != hashMove && position.pieceAt(Moves.to(killer)) == NONE
+                && Moves.flag(killer) != Moves.EN_PASSANT && Moves.flag(killer) != Moves.PROMOTION && generator.isLegal(killer);
+    }
+
+    /**
+     * Scores captures most valuable victim first, then least valuable attacker
+     */
+    private void scoreCaptures(){
+        for(int i = 0; i < moves.size(); i++){
+            int move = moves.get(i);
+            int captured = position.pieceAt(Moves.to(move));
+            int victimValue = Moves.flag(move) == Moves.EN_PASSANT ? Evaluation.VALUES[PAWN] : captured == NONE ? 0 : Evaluation.VALUES[Pieces.kind(captured)];
+            int promotionValue = Moves.flag(move) == Moves.PROMOTION ? Evaluation.VALUES[Moves.promotionKind(move)] : 0;
+            scores[i] = (victimValue + promotionValue) * 8 + KING - Pieces.kind(position.pieceAt(Moves.from(move)));
+        }
+    }
+
+    /**
+     * Scores quiet moves by history, underpromotions last as they are almost never best
+     */
+    private void scoreQuiets(){
+        for(int i = 0; i < moves.size(); i++){
+            int move = moves.get(i);
+            scores[i] = Moves.flag(move) == Moves.PROMOTION ? -1 : history[move & 4095];
+        }
+    }
+
+    /**
+     * Moves the best scored of the remaining moves to the next index and hands it out, a selection sort done one step at a time
+     * so the moves after a cutoff are never sorted
+     */
+    private int pickBest(){
+        int best = index;
+        for(int i = index + 1; i < moves.size(); i++){
+            if(scores[i] > scores[best]){
+                best = i;
+            }
+        }
+        int move = moves.get(best);
+        moves.set(best, moves.get(index));
+        moves.set(index, move);
+        int moveScore = scores[best];
+        scores[best] = scores[index];
+        scores[index] = moveScore;
+        index++;
+        return move;
+    }
+}
@@ -0,0 +1,140 @@
+package dev.huntstew.retrochess.engine;
+
+import static dev.huntstew.retrochess.engine.Pieces.KING;
+import static dev.huntstew.retrochess.engine.Pieces.KNIGHT;
+import static dev.huntstew.retrochess.engine.Pieces.NONE;
+import static dev.huntstew.retrochess.engine.Pieces.PAWN;
+
+/**
+ * Moves packed into the low 16 bits of an int, so move lists can be plain int arrays
+ * From the low bits up: from square (6), to square (6), flag (2) and promotion kind - KNIGHT (2)
+ * The flags are in the same order as MoveType, so a flag can index MoveType.values()
+ */
+public final class Moves {
+    public static final int NORMAL = 0;
+    public static final int CASTLE = 1;
+    public static final int EN_PASSANT = 2;
+    public static final int PROMOTION = 3;
+
+    /** Never a real move, as from and to would be the same square */
+    public static final int NO_MOVE = 0;
+
+    private Moves(){}
+
+    /**
+     * Packs a move that is not a promotion
+     * @param from the square of the moving piece
+     * @param to the destination square
+     * @param flag NORMAL, CASTLE or EN_PASSANT
+     * @return the move
+     */
+    public static int make(int from, int to, int flag){
+        return from | to << 6 | flag << 12;
+    }
+
+    /**
+     * Packs a promotion
+     * @param from the square of the pawn
+     * @param to the square on the last rank
+     * @param kind KNIGHT through QUEEN
+     * @return the move
+     */
+    public static int promotion(int from, int to, int kind){
+        return from | to << 6 | PROMOTION << 12 | (kind - KNIGHT) << 14;
+    }
+
+    /**
+     * Packs a move found on a position, working out its flag from the moving piece
+     * @param position the position before the move
+     * @param from the square of the moving piece
+     * @param to the destination square
+     * @param promotion the kind a pawn reaching the last rank becomes, ignored for other moves
+     * @return the move
+     */
+    public static int of(Position position, int from, int to, int promotion){
+        int kind = Pieces.kind(position.pieceAt(from));
+        if(kind == KING && (to - from == 2 || from - to == 2)){
+            return make(from, to, CASTLE);
+        }
+        if(kind == PAWN){
+            if(to == position.getEnPassantSquare()){
+                return make(from, to, EN_PASSANT);
+            }
+            if(to < 8 || to >= 56){
+                return promotion(from, to, promotion);
+            }
+        }
+        return make(from, to, NORMAL);
+    }
+
+    public static int from(int move){
+        return move & 63;
+    }
+
+    public static int to(int move){
+        return move >>> 6 & 63;
+    }
+
+    public static int flag(int move){
+        return move >>> 12 & 3;
+    }
+
+    /**
+     * Gets the kind a move promotes to
+     * @param move the move
+     * @return KNIGHT through QUEEN, NONE if the move is not a promotion
+     */
+    public static int promotionKind(int move){
+        return flag(move) == PROMOTION ? (move >>> 14) + KNIGHT : NONE;
+    }
+
+    /**
+     * Gets the squares whose contents change when a move is made or taken back
+     * @param move the move
+     * @return a bitboard of 2 squares, 3 for en passant and 4 for castling
+     */
+    public static long touchedSquares(int move){
+        int from = from(move);
+        int to = to(move);
+        long squares = Bitboards.bit(from) | Bitboards.bit(to);
+        if(flag(move) == CASTLE){
+            squares |= Bitboards.bit(to > from ? from + 3 : from - 4) | Bitboards.bit((from + to) >>> 1);
+        }
+        else if(flag(move) == EN_PASSANT){
+            // The captured pawn stands beside the moving pawn, on the same rank
+            squares |= Bitboards.bit(Bitboards.square(Bitboards.file(to), Bitboards.rank(from)));
+        }
+        return squares;
+    }
+
+    /**
+     * Writes a move in coordinate notation, such as e2e4 or e7e8q
+     * @param move the move
+     * @return the move as text
+     */
+    public static String toString(int move){
+        String text = squareName(from(move)) + squareName(to(move));
+        return flag(move) == PROMOTION ? text + "nbrq".charAt(promotionKind(move) - KNIGHT) : text;
+    }
+
+    /**
+     * Reads a move in coordinate notation, as written by toString, matching it against the legal moves of a position
+     * @param position the position the move is played in
+     * @param text the move, such as e2e4 or e7e8q
+     * @return the move, NO_MOVE if it is not a legal move of the side to move
+     */
+    public static int parse(Position position, String text){
+        MoveList moves = new MoveList();
+        int count = new MoveGenerator().generate(position, position.getSideToMove(), moves);
+        for(int i = 0; i < count; i++){
+            if(toString(moves.get(i)).equals(text)){
+                return moves.get(i);
+            }
+        }
+        return NO_MOVE;
+    }
+
+    private static String squareName(int square){
+        return (char) ('a' + Bitboards.file(square)) + "" + (char) ('1' + Bitboards.rank(square));
+    }
+}
@@ -0,0 +1,188 @@
+package dev.huntstew.retrochess.engine;
+
+import static dev.huntstew.retrochess.engine.Pieces.KING;
+import static dev.huntstew.retrochess.engine.Pieces.NONE;
+import static dev.huntstew.retrochess.engine.Pieces.QUEEN;
+import static dev.huntstew.retrochess.engine.Pieces.ROOK;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * An opening book read straight from a memory-mapped file, nothing but the mapping is kept, so a book of any size opens instantly
+ * Entries use the 16 byte Polyglot layout, big-endian: key (8), move (2), weight (2) and learn (4), sorted by key as an unsigned number
+ * Keys are this engine's Zobrist keys rather than the Polyglot ones, so books are made with OpeningBookWriter
+ * A book only reads the mapping, so one book can be shared by any number of threads
+ */
+public final class OpeningBook {
+    public static final int ENTRY_BYTES = 16;
+
+    private static final int MOVE_OFFSET = 8;
+    private static final int WEIGHT_OFFSET = 10;
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    /**
+     * Wraps book entries already in memory
+     * @param entries the entries, from 0 to the limit of the buffer
+     */
+    public OpeningBook(ByteBuffer entries){
+        this.entries = entries.duplicate();
+        this.size = entries.limit() / ENTRY_BYTES;
+    }
+
+    /**
+     * Maps a book file, the channel is closed once this returns but the file must not be changed while the book is in use
+     * @param path the book
+     * @return the book
+     * @throws IOException if the file can not be read or is not a whole number of entries
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            long length = channel.size();
+            if(length % ENTRY_BYTES != 0){
+                throw new IOException("Not an opening book: " + path);
+            }
+            // A single mapping is indexed by int, which is over a hundred million entries
+            if(length > Integer.MAX_VALUE){
+                throw new IOException("Opening book too large: " + path);
+            }
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+    }
+
+    /**
+     * Gets the number of entries
+     * @return the entries in the book
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Finds every book move of a position, in the order of the book, which is heaviest first for books made by OpeningBookWriter
+     * Entries whose move is not legal in the position, from a key collision or a broken book, are left out
+     * @param position the position
+     * @param moves the list to fill, cleared first
+     * @param weights filled with the weight of each move, at least MoveList.CAPACITY long
+     * @return the number of moves
+     */
+    public int probe(Position position, MoveList moves, int[] weights){
+        moves.clear();
+        long key = position.getKey();
+        MoveGenerator generator = null;
+        for(int index = firstEntry(key); index < size && entries.getLong(index * ENTRY_BYTES) == key; index++){
+            if(generator == null){
+                generator = new MoveGenerator();
+                generator.prepare(position, position.getSideToMove());
+            }
+            int move = decode(position, generator, entries.getShort(index * ENTRY_BYTES + MOVE_OFFSET) & 0xFFFF);
+            if(move != Moves.NO_MOVE && moves.size() < weights.length){
+                weights[moves.size()] = entries.getShort(index * ENTRY_BYTES + WEIGHT_OFFSET) & 0xFFFF;
+                moves.add(move);
+            }
+        }
+        return moves.size();
+    }
+
+    /**
+     * Picks a book move at random, each with a chance in proportion to its weight, moves of weight 0 are never picked
+     * The entries are read in one pass with no lists, each move replacing the one picked so far with a chance of its weight
+     * out of the total weight read so far
+     * @param position the position
+     * @param random where the choice comes from
+     * @return the move, Moves.NO_MOVE if the position is not in the book
+     */
+    public int pick(Position position, Random random){
+        long key = position.getKey();
+        MoveGenerator generator = null;
+        int picked = Moves.NO_MOVE;
+        int total = 0;
+        for(int index = firstEntry(key); index < size && entries.getLong(index * ENTRY_BYTES) == key; index++){
+            int weight = entries.getShort(index * ENTRY_BYTES + WEIGHT_OFFSET) & 0xFFFF;
+            if(weight == 0){
+                continue;
+            }
+            if(generator == null){
+                generator = new MoveGenerator();
+                generator.prepare(position, position.getSideToMove());
+            }
+            int move = decode(position, generator, entries.getShort(index * ENTRY_BYTES + MOVE_OFFSET) & 0xFFFF);
+            if(move == Moves.NO_MOVE){
+                continue;
+            }
+            total += weight;
+            if(random.nextInt(total) < weight){
+                picked = move;
+            }
+        }
+        return picked;
+    }
+
+    /**
+     * Binary searches for the first entry of a key
+     * @param key the key
+     * @return the index of its first entry, or of the first entry after where it would be
+     */
+    private int firstEntry(long key){
+        int low = 0;
+        int high = size;
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(Long.compareUnsigned(entries.getLong(middle * ENTRY_BYTES), key) < 0){
+                low = middle + 1;
+            }
+            else{
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Packs a move the way Polyglot books store it
+     * From the low bits up: to square (6), from square (6) and promotion (3), 1 for a knight through 4 for a queen
+     * Castling is written as the king taking its own rook
+     * @param move the move
+     * @return the book move
+     */
+    static int encode(int move){
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        if(Moves.flag(move) == Moves.CASTLE){
+            to = to > from ? from + 3 : from - 4;
+        }
+        int promotion = Moves.promotionKind(move);
+        // The book numbers the promotion kinds from 1 for a knight, the same as Pieces
+        return to | from << 6 | (promotion == NONE ? 0 : promotion << 12);
+    }
+
+    /**
+     * Turns a book move back into a legal move of the position
+     * @param position the position
+     * @param generator prepared for the side to move
+     * @param bookMove the move as stored in the book
+     * @return the move, Moves.NO_MOVE if it is not legal
+     */
+    private static int decode(Position position, MoveGenerator generator, int bookMove){
+        int to = bookMove & 63;
+        int from = bookMove >>> 6 & 63;
+        int promotion = bookMove >>> 12 & 7;
+        int piece = position.pieceAt(from);
+        if(piece == NONE || Pieces.color(piece) != position.getSideToMove() || promotion > QUEEN){
+            return Moves.NO_MOVE;
+        }
+        if(Pieces.kind(piece) == KING && position.pieceAt(to) == Pieces.make(Pieces.color(piece), ROOK)){
+            to = to > from ? from + 2 : from - 2;
+        }
+        if((generator.legalTargets(from) & Bitboards.bit(to)) == 0){
+            return Moves.NO_MOVE;
+        }
+        return Moves.of(position, from, to, promotion == 0 ? QUEEN : promotion);
+    }
+}
@@ -0,0 +1,136 @@
+package dev.huntstew.retrochess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Makes an opening book from positions and the moves played in them, for OpeningBook to read
+ * Every add of the same move in the same position adds to one entry, written out sorted by key with the heaviest move of each position first
+ * Weights follow the Polyglot convention for games: 2 for a move by the winner, 1 for a draw or an unknown result and 0 for the loser
+ */
+public final class OpeningBookWriter {
+    /** weights are stored in 16 bits, heavier entries are capped */
+    public static final int MAX_WEIGHT = 0xFFFF;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private long[] keys = new long[1024];
+    private int[] moves = new int[1024];
+    private int[] weights = new int[1024];
+    private int size;
+
+    /**
+     * Adds a move, or more weight to it if it was added before
+     * @param position the position the move is played in
+     * @param move the move
+     * @param weight how often or how well it was played
+     */
+    public void add(Position position, int move, int weight){
+        if(size == keys.length){
+            keys = Arrays.copyOf(keys, size * 2);
+            moves = Arrays.copyOf(moves, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        keys[size] = position.getKey();
+        moves[size] = OpeningBook.encode(move);
+        weights[size] = weight;
+        size++;
+    }
+
+    /**
+     * Adds the opening moves of a game, weighted by its result
+     * @param game the game
+     * @param maxPlies how many moves from the start of the game to add
+     */
+    public void addGame(PgnGame game, int maxPlies){
+        Position position = new Position(game.getStartPosition());
+        int[] resultWeights;
+        switch(game.getResult()){
+            case "1-0":
+                resultWeights = new int[]{2, 0};
+                break;
+            case "0-1":
+                resultWeights = new int[]{0, 2};
+                break;
+            default:
+                resultWeights = new int[]{1, 1};
+        }
+        for(int ply = 0; ply < maxPlies && ply < game.getMoveCount(); ply++){
+            int move = game.getMove(ply);
+            add(position, move, resultWeights[position.getSideToMove()]);
+            position.makeMove(move);
+        }
+    }
+
+    /**
+     * Writes the book, the writer can go on adding moves and be written again afterwards
+     * @param channel where to write the book, left open
+     * @return the number of entries written
+     * @throws IOException if the channel can not be written
+     */
+    public int write(WritableByteChannel channel) throws IOException {
+        // The same position and move are next to each other once sorted, so they merge in a single pass
+        Integer[] order = new Integer[size];
+        for(int i = 0; i < size; i++){
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingLong(i -> keys[i]).thenComparingInt(i -> moves[i]));
+        int merged = 0;
+        for(int i = 0; i < size; i++){
+            int entry = order[i];
+            if(merged > 0 && keys[order[merged - 1]] == keys[entry] && moves[order[merged - 1]] == moves[entry]){
+                weights[order[merged - 1]] += weights[entry];
+            }
+            else{
+                order[merged++] = entry;
+            }
+        }
+        Integer[] entries = Arrays.copyOf(order, merged);
+        Arrays.sort(entries, Comparator.<Integer, Long>comparing(i -> keys[i], Long::compareUnsigned)
+                .thenComparing(Comparator.<Integer>comparingInt(i -> weights[i]).reversed()));
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        for(int entry : entries){
+            if(!buffer.hasRemaining()){
+                drain(buffer, channel);
+            }
+            buffer.putLong(keys[entry]);
+            buffer.putShort((short) moves[entry]);
+            buffer.putShort((short) Math.min(weights[entry], MAX_WEIGHT));
+            buffer.putInt(0);
+        }
+        drain(buffer, channel);
+        // Merged weights were summed in place, so writing again would count them twice
+        compact(entries);
+        return entries.length;
+    }
+
+    /**
+     * Keeps only the merged entries, in their written order
+     */
+    private void compact(Integer[] entries){
+        long[] keptKeys = new long[Math.max(1024, entries.length)];
+        int[] keptMoves = new int[keptKeys.length];
+        int[] keptWeights = new int[keptKeys.length];
+        for(int i = 0; i < entries.length; i++){
+            keptKeys[i] = keys[entries[i]];
+            keptMoves[i] = moves[entries[i]];
+            keptWeights[i] = weights[entries[i]];
+        }
+        keys = keptKeys;
+        moves = keptMoves;
+        weights = keptWeights;
+        size = entries.length;
+    }
+
+    private static void drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,17 @@
+package dev.huntstew.retrochess.engine;
+
+/**
+ * The state of a game as decided by Rules.adjudicate
+ * ONGOING means the game continues, every other value ends it
+ */
+public enum Outcome {
+    ONGOING,
+    WHITE_WINS,
+    BLACK_WINS,
+    STALEMATE,
+    THREEFOLD_REPETITION,
+    UNWINNABLE,
+    /** a draw with best play, known exactly from Bitbases */
+    DRAWN_ENDGAME,
+    FIFTY_MOVE_RULE
+}
@@ -0,0 +1,150 @@
+package dev.huntstew.retrochess.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Lazy SMP, a search run on several threads at once that only share a transposition table
+ * The calling thread runs the main search, helper threads search their own copies of the position and fill the table
+ * with results the main search then cuts off on. Odd numbered helpers start a ply deeper, so the threads spread over
+ * different depths instead of all searching the same tree
+ */
+public final class ParallelSearch {
+    private final TranspositionTable table;
+    private final Search main;
+    private final Search[] helpers;
+    /** runs the helpers, null when there are none */
+    private final ExecutorService executor;
+
+    /**
+     * Creates a parallel search
+     * @param threads the number of threads to search with, including the calling thread
+     * @param tableMegabytes the size of the shared transposition table
+     */
+    public ParallelSearch(int threads, int tableMegabytes){
+        table = new TranspositionTable(tableMegabytes);
+        main = new Search(table);
+        helpers = new Search[Math.max(0, threads - 1)];
+        for(int i = 0; i < helpers.length; i++){
+            helpers[i] = new Search(table);
+        }
+        executor = helpers.length == 0 ? null : Executors.newFixedThreadPool(helpers.length, runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches a position for the best move of the side to move on every thread, see Search.search
+     * The limits apply to the main search, the helpers stop when it does
+     * @param position the position to search, used by the main search and copied for each helper
+     * @param maxDepth the deepest iteration to run
+     * @param maxNodes the number of main search nodes to stop after, Long.MAX_VALUE for no limit
+     * @param maxMillis the time to stop after, Long.MAX_VALUE for no limit
+     * @return the best move found by the main search, Moves.NO_MOVE if the side to move has no legal moves
+     */
+    public int search(Position position, int maxDepth, long maxNodes, long maxMillis){
+        table.newSearch();
+
+        List<Future<?>> running = new ArrayList<>(helpers.length);
+        for(int i = 0; i < helpers.length; i++){
+            Search helper = helpers[i];
+            Position copy = new Position(position);
+            int startDepth = 1 + (i & 1);
+            try {
+                running.add(executor.submit(() -> helper.iterate(copy, startDepth, maxDepth, Long.MAX_VALUE, maxMillis)));
+            } catch (RejectedExecutionException e) {
+                // Shut down from another thread, the main search still answers
+                break;
+            }
+        }
+
+        int move = main.iterate(position, 1, maxDepth, maxNodes, maxMillis);
+
+        for(Search helper : helpers){
+            helper.stop();
+        }
+        for(Future<?> future : running){
+            try {
+                future.get();
+            } catch (ExecutionException | InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        for(Search helper : helpers){
+            helper.clearStop();
+        }
+        return move;
+    }
+
+    /**
+     * Stops a running search from another thread, it returns the best move found so far
+     * The stop stays in effect until clearStop, so a stop made just before a search starts is not lost
+     */
+    public void stop(){
+        main.stop();
+        for(Search helper : helpers){
+            helper.stop();
+        }
+    }
+
+    /**
+     * Lets searches run again after a stop, call once the stopped search has returned
+     */
+    public void clearStop(){
+        main.clearStop();
+        for(Search helper : helpers){
+            helper.clearStop();
+        }
+    }
+
+    /**
+     * Sets the listener told about every iteration the main search finishes
+     * @param listener the listener, null for none
+     */
+    public void setListener(SearchListener listener) {
+        main.setListener(listener);
+    }
+
+    /**
+     * Stops the helper threads for good, the search can not be used afterwards
+     * Safe to call from another thread while searching, the running search returns at once and the table is freed once the search is no longer referenced
+     */
+    public void shutdown(){
+        stop();
+        if(executor != null){
+            // Helpers already queued still run, and return straight away as they are stopped
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Gets the main search, whose score, depth and principal variation are the result of the last search
+     * @return the main search
+     */
+    public Search getMain() {
+        return main;
+    }
+
+    /**
+     * Gets the nodes searched by every thread in the last search
+     * @return the total number of nodes
+     */
+    public long getNodes() {
+        long nodes = main.getNodes();
+        for(Search helper : helpers){
+            nodes += helper.getNodes();
+        }
+        return nodes;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,115 @@
+package dev.huntstew.retrochess.engine;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One game of a PGN file, its tags, starting position, moves and result
+ * A PgnReader refills the same game for every game it reads, so a whole file is read with a fixed amount of memory
+ */
+public final class PgnGame {
+    /** the result of a game still in progress or of unknown result */
+    public static final String UNKNOWN_RESULT = "*";
+
+    private final Map<String, String> tags = new LinkedHashMap<>();
+    private final Position start = Position.startingPosition();
+    private int[] moves = new int[256];
+    private int moveCount;
+    private String result = UNKNOWN_RESULT;
+    /** why the game could not be read, null if it was read in full */
+    private String error;
+
+    /**
+     * Empties the game, back to no tags and no moves from the standard starting position
+     */
+    public void clear(){
+        tags.clear();
+        Fen.load(Fen.STARTING_POSITION, start);
+        moveCount = 0;
+        result = UNKNOWN_RESULT;
+        error = null;
+    }
+
+    /**
+     * Gets a tag value
+     * @param name the tag name, such as White or Event
+     * @return the value, null if the game has no such tag
+     */
+    public String getTag(String name){
+        return tags.get(name);
+    }
+
+    public void setTag(String name, String value){
+        tags.put(name, value);
+    }
+
+    /**
+     * Gets every tag in the order they were read or set
+     * @return the tags by name
+     */
+    public Map<String, String> getTags(){
+        return tags;
+    }
+
+    /**
+     * Gets the position before the first move, set by a FEN tag or the standard starting position
+     * @return the starting position, changing it changes the game
+     */
+    public Position getStartPosition(){
+        return start;
+    }
+
+    /**
+     * Adds a move played after the ones already in the game
+     * @param move the packed move, see Moves
+     */
+    public void addMove(int move){
+        if(moveCount == moves.length){
+            moves = Arrays.copyOf(moves, moveCount * 2);
+        }
+        moves[moveCount++] = move;
+    }
+
+    public int getMove(int index){
+        return moves[index];
+    }
+
+    public int getMoveCount(){
+        return moveCount;
+    }
+
+    /**
+     * Gets the result
+     * @return 1-0, 0-1, 1/2-1/2 or UNKNOWN_RESULT
+     */
+    public String getResult(){
+        return result;
+    }
+
+    public void setResult(String result){
+        this.result = result;
+    }
+
+    /**
+     * Checks whether every move of the game was read
+     * @return true if no move failed to read
+     */
+    public boolean isValid(){
+        return error == null;
+    }
+
+    /**
+     * Gets why the game could not be read in full, the moves before the problem are kept
+     * @return the problem, null for valid games
+     */
+    public String getError(){
+        return error;
+    }
+
+    void setError(String error){
+        if(this.error == null){
+            this.error = error;
+        }
+    }
+}
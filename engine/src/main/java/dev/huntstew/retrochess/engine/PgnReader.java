@@ -0,0 +1,301 @@
+package dev.huntstew.retrochess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams games out of PGN text, one game at a time through a fixed size buffer, so files of any size can be read
+ * Moves are replayed as they are read, resolving each SAN move against the legal moves of the position
+ * Comments, variations, numeric annotations and move numbers are skipped
+ * A reader is not thread safe, large imports use one reader per file or per slice of a file on each core
+ */
+public final class PgnReader {
+    private static final int BUFFER_BYTES = 64 * 1024;
+    /** tokens and tag values longer than this are cut short, so a broken file can not use unbounded memory */
+    private static final int MAX_TOKEN = 1024;
+    /** the letters a SAN move can start with */
+    private static final String MOVE_LETTERS = "abcdefghNBRQKO0";
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final San san = new San();
+    /** the position of the game being read, after its last move once next returns */
+    private final Position position = new Position();
+    private final StringBuilder token = new StringBuilder();
+    private final byte[] valueBytes = new byte[MAX_TOKEN];
+    /** a byte read ahead and given back, -2 for none */
+    private int pushedBack = -2;
+    /** games read so far, for error messages */
+    private long gameNumber;
+    /** whether the byte order mark some editors write at the start has been looked for */
+    private boolean started;
+
+    /**
+     * Creates a reader, the buffer starts empty so nothing is read until the first game is asked for
+     * @param channel where to read the PGN from
+     */
+    public PgnReader(ReadableByteChannel channel){
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    /**
+     * Reads the next game
+     * A move that can not be read marks the game invalid, the rest of its moves are skipped up to its result
+     * @param game the game to fill, cleared first
+     * @return false once there are no more games
+     * @throws IOException if the channel can not be read
+     */
+    public boolean next(PgnGame game) throws IOException {
+        game.clear();
+        if(!started){
+            started = true;
+            skipByteOrderMark();
+        }
+        int c = skipSpace();
+        if(c == -1){
+            return false;
+        }
+        gameNumber++;
+
+        while(c == '['){
+            readTag(game);
+            c = skipSpace();
+        }
+
+        String fen = game.getTag("FEN");
+        if(fen != null){
+            try {
+                Fen.load(fen, game.getStartPosition());
+            } catch (IllegalArgumentException e) {
+                game.setError("game " + gameNumber + ": " + e.getMessage());
+                // Loading failed part way through, and the moves of an invalid game are skipped anyway
+                Fen.load(Fen.STARTING_POSITION, game.getStartPosition());
+            }
+        }
+        position.copyFrom(game.getStartPosition());
+
+        while(c != -1){
+            if(c == '{'){
+                skipPast('}');
+            }
+            else if(c == ';'){
+                skipPast('\n');
+            }
+            else if(c == '('){
+                skipVariation();
+            }
+            else if(c == '['){
+                // A new game started without a result
+                pushedBack = c;
+                return true;
+            }
+            else if(c == ')' || c == '}'){
+                // Stray closing brackets are ignored
+            }
+            else{
+                readToken(c);
+                if(isResult()){
+                    game.setResult(token.toString());
+                    return true;
+                }
+                playToken(game);
+            }
+            c = skipSpace();
+        }
+        return true;
+    }
+
+    /**
+     * Gets the position after the last move of the game just read, with every move of the game in its history
+     * @return the position, reused by the next game
+     */
+    public Position getPosition(){
+        return position;
+    }
+
+    /**
+     * Plays the move in the token, skipping any move number in front of it and anything that is not a move
+     */
+    private void playToken(PgnGame game){
+        int start = 0;
+        while(start < token.length() && Character.isDigit(token.charAt(start))){
+            start++;
+        }
+        if(start == token.length()){
+            return;
+        }
+        if(token.charAt(start) == '.'){
+            while(start < token.length() && token.charAt(start) == '.'){
+                start++;
+            }
+        }
+        else{
+            // Castling written with zeros starts with a digit too
+            start = 0;
+        }
+        // Numeric annotations, move numbers on their own and annotations such as !? or +- are not moves
+        if(start == token.length() || MOVE_LETTERS.indexOf(token.charAt(start)) < 0 || !game.isValid()){
+            return;
+        }
+        if(start > 0){
+            token.delete(0, start);
+        }
+
+        int move = san.parse(position, token);
+        if(move == Moves.NO_MOVE){
+            game.setError("game " + gameNumber + ": no legal move " + token + " in " + Fen.format(position));
+            return;
+        }
+        position.makeMove(move);
+        game.addMove(move);
+    }
+
+    private boolean isResult(){
+        return contentEquals("1-0") || contentEquals("0-1") || contentEquals("1/2-1/2") || contentEquals(PgnGame.UNKNOWN_RESULT);
+    }
+
+    private boolean contentEquals(String text){
+        if(token.length() != text.length()){
+            return false;
+        }
+        for(int i = 0; i < text.length(); i++){
+            if(token.charAt(i) != text.charAt(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a tag pair such as [White "Carlsen, Magnus"], the opening bracket already read
+     */
+    private void readTag(PgnGame game) throws IOException {
+        int c = skipSpace();
+        token.setLength(0);
+        while(c != -1 && c != '"' && c != ']' && !isSpace(c)){
+            if(token.length() < MAX_TOKEN){
+                token.append((char) c);
+            }
+            c = read();
+        }
+        String name = token.toString();
+        while(c != -1 && c != '"' && c != ']'){
+            c = read();
+        }
+
+        // Tag values are UTF-8, with \" and \\ as escapes
+        int length = 0;
+        if(c == '"'){
+            for(c = read(); c != -1 && c != '"'; c = read()){
+                if(c == '\\'){
+                    c = read();
+                }
+                if(c != -1 && length < valueBytes.length){
+                    valueBytes[length++] = (byte) c;
+                }
+            }
+        }
+        while(c != -1 && c != ']'){
+            c = read();
+        }
+        game.setTag(name, new String(valueBytes, 0, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a token up to the next space or bracket
+     * @param first the first character of the token, already read
+     */
+    private void readToken(int first) throws IOException {
+        token.setLength(0);
+        int c = first;
+        while(c != -1 && !isSpace(c) && "{}();[".indexOf(c) < 0){
+            if(token.length() < MAX_TOKEN){
+                token.append((char) c);
+            }
+            c = read();
+        }
+        if(c != -1){
+            pushedBack = c;
+        }
+    }
+
+    /**
+     * Skips a variation and any variations or comments nested in it, the opening bracket already read
+     */
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        for(int c = read(); c != -1 && depth > 0; c = depth > 0 ? read() : -1){
+            if(c == '('){
+                depth++;
+            }
+            else if(c == ')'){
+                depth--;
+            }
+            else if(c == '{'){
+                skipPast('}');
+            }
+            else if(c == ';'){
+                skipPast('\n');
+            }
+        }
+    }
+
+    private void skipPast(int end) throws IOException {
+        for(int c = read(); c != -1 && c != end; c = read()){
+            // Skipped
+        }
+    }
+
+    /**
+     * Skips spaces and escaped lines starting with %
+     * @return the first byte that is not a space, -1 at the end of the input
+     */
+    private int skipSpace() throws IOException {
+        int c = read();
+        while(isSpace(c) || c == '%'){
+            if(c == '%'){
+                skipPast('\n');
+            }
+            c = read();
+        }
+        return c;
+    }
+
+    private void skipByteOrderMark() throws IOException {
+        int c = read();
+        if(c != 0xEF){
+            pushedBack = c;
+            return;
+        }
+        read();
+        read();
+    }
+
+    private static boolean isSpace(int c){
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    /**
+     * Reads one byte, refilling the buffer from the channel when it runs out
+     * @return the byte from 0 to 255, -1 at the end of the input
+     */
+    private int read() throws IOException {
+        if(pushedBack != -2){
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        while(!buffer.hasRemaining()){
+            buffer.clear();
+            int read = channel.read(buffer);
+            buffer.flip();
+            if(read == -1){
+                return -1;
+            }
+        }
+        return buffer.get() & 0xFF;
+    }
+}
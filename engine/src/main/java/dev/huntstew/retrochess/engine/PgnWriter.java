@@ -0,0 +1,150 @@
+package dev.huntstew.retrochess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Writes games as PGN text to a channel, through a fixed size buffer
+ * Games start with the seven tag roster, filled with ? where unknown, then any other tags and the moves in SAN
+ */
+public final class PgnWriter {
+    private static final int BUFFER_BYTES = 64 * 1024;
+    /** movetext lines are kept shorter than this, as the PGN standard asks */
+    private static final int LINE_LENGTH = 80;
+    private static final String[] ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+    private static final String[] ROSTER_DEFAULTS = {"?", "?", "????.??.??", "?", "?", "?", PgnGame.UNKNOWN_RESULT};
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final San san = new San();
+    private final Position position = new Position();
+    private final StringBuilder text = new StringBuilder();
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * Creates a writer
+     * @param channel where to write the PGN to
+     */
+    public PgnWriter(WritableByteChannel channel){
+        this.channel = channel;
+    }
+
+    /**
+     * Writes a game, it may stay in the buffer until flush
+     * @param game the game, its moves must be legal from its starting position
+     * @throws IOException if the channel can not be written
+     */
+    public void write(PgnGame game) throws IOException {
+        text.setLength(0);
+        Map<String, String> tags = game.getTags();
+        for(int i = 0; i < ROSTER.length; i++){
+            String value = ROSTER[i].equals("Result") ? game.getResult() : tags.getOrDefault(ROSTER[i], ROSTER_DEFAULTS[i]);
+            appendTag(ROSTER[i], value);
+        }
+
+        String fen = Fen.format(game.getStartPosition());
+        boolean standardStart = fen.equals(Fen.STARTING_POSITION);
+        for(Map.Entry<String, String> tag : tags.entrySet()){
+            if(!isRoster(tag.getKey()) && !tag.getKey().equals("FEN") && !tag.getKey().equals("SetUp")){
+                appendTag(tag.getKey(), tag.getValue());
+            }
+        }
+        if(!standardStart){
+            appendTag("SetUp", "1");
+            appendTag("FEN", fen);
+        }
+        text.append('\n');
+
+        Fen.load(fen, position);
+        line.setLength(0);
+        for(int i = 0; i < game.getMoveCount(); i++){
+            int move = game.getMove(i);
+            int lineStart = line.length();
+            if(position.getSideToMove() == Pieces.WHITE){
+                line.append(position.getFullmoveNumber()).append(". ");
+            }
+            else if(i == 0){
+                line.append(position.getFullmoveNumber()).append("... ");
+            }
+            san.format(position, move, line);
+            line.append(' ');
+            position.makeMove(move);
+            wrap(lineStart);
+        }
+        line.append(game.getResult());
+        wrap(line.length() - game.getResult().length());
+        text.append(line).append("\n\n");
+        encode();
+    }
+
+    /**
+     * Writes everything still in the buffer to the channel
+     * @throws IOException if the channel can not be written
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Starts a new line before the text added since lineStart once the line gets too long
+     * @param lineStart where the last move number or move began in the line
+     */
+    private void wrap(int lineStart){
+        if(line.length() > LINE_LENGTH && lineStart > 0){
+            text.append(line, 0, lineStart - 1).append('\n');
+            line.delete(0, lineStart);
+        }
+    }
+
+    private void appendTag(String name, String value){
+        text.append('[').append(name).append(" \"");
+        for(int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            if(c == '"' || c == '\\'){
+                text.append('\\');
+            }
+            text.append(c);
+        }
+        text.append("\"]\n");
+    }
+
+    private static boolean isRoster(String name){
+        for(String roster : ROSTER){
+            if(roster.equals(name)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Encodes the text of a game into the buffer, writing the buffer out whenever it fills
+     */
+    private void encode() throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        encoder.reset();
+        while(true){
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if(result.isOverflow()){
+                flush();
+            }
+            else{
+                break;
+            }
+        }
+        while(encoder.flush(buffer).isOverflow()){
+            flush();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package dev.huntstew.retrochess.engine;
+
+/**
+ * Integer codes for colors and pieces used by the bitboard engine
+ * A piece code packs the color into bit 3 and the kind into bits 0-2, so it can index bitboard arrays directly
+ */
+public final class Pieces {
+    /** The white side, moves first */
+    public static final int WHITE = 0;
+    /** The black side */
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    /** The code used for an empty square */
+    public static final int NONE = -1;
+
+    /** Size of arrays indexed by piece code */
+    public static final int CODES = 16;
+
+    private Pieces(){}
+
+    /**
+     * Packs a color and kind into a piece code
+     * @param color WHITE or BLACK
+     * @param kind PAWN through KING
+     * @return the piece code
+     */
+    public static int make(int color, int kind){
+        return color << 3 | kind;
+    }
+
+    /**
+     * Gets the color of a piece code
+     * @param piece the piece code, must not be NONE
+     * @return WHITE or BLACK
+     */
+    public static int color(int piece){
+        return piece >>> 3;
+    }
+
+    /**
+     * Gets the kind of a piece code
+     * @param piece the piece code, must not be NONE
+     * @return PAWN through KING
+     */
+    public static int kind(int piece){
+        return piece & 7;
+    }
+}
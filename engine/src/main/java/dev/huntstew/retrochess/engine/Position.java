@@ -0,0 +1,592 @@
+package dev.huntstew.retrochess.engine;
+
+import static dev.huntstew.retrochess.engine.Pieces.BISHOP;
+import static dev.huntstew.retrochess.engine.Pieces.BLACK;
+import static dev.huntstew.retrochess.engine.Pieces.KING;
+import static dev.huntstew.retrochess.engine.Pieces.KNIGHT;
+import static dev.huntstew.retrochess.engine.Pieces.NONE;
+import static dev.huntstew.retrochess.engine.Pieces.PAWN;
+import static dev.huntstew.retrochess.engine.Pieces.QUEEN;
+import static dev.huntstew.retrochess.engine.Pieces.ROOK;
+import static dev.huntstew.retrochess.engine.Pieces.WHITE;
+
+import java.util.Arrays;
+
+/**
+ * A chess position stored as one bitboard per piece code plus occupancy masks per color
+ * A mailbox of piece codes is kept alongside the bitboards so "what is on this square" is a single array read
+ */
+public final class Position {
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    /** Used for the en passant square when there is none */
+    public static final int NO_SQUARE = -1;
+    /** castling rights kept when a piece moves from or to each square, only the king and rook homes clear any */
+    private static final int[] CASTLING_MASKS = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASKS, WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASKS[0] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASKS[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASKS[7] &= ~WHITE_KINGSIDE;
+        CASTLING_MASKS[56] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASKS[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASKS[63] &= ~BLACK_KINGSIDE;
+    }
+
+    /** one bitboard per piece code */
+    private final long[] pieces = new long[Pieces.CODES];
+    /** all pieces of each color */
+    private final long[] colors = new long[2];
+    /** piece code on every square, NONE for empties */
+    private final int[] board = new int[64];
+    /** every occupied square */
+    private long occupied;
+    /** the color whose turn it is */
+    private int sideToMove;
+    /** bit set of the castling rights still available */
+    private int castlingRights;
+    /** the square a pawn skipped over on the last move, NO_SQUARE otherwise */
+    private int enPassantSquare;
+    /** plies since the last capture or pawn move, for the fifty move rule */
+    private int halfmoveClock;
+    /** starts at 1 and goes up after every black move */
+    private int fullmoveNumber = 1;
+    /** Zobrist key of the position, kept up to date by every change */
+    private long key;
+    /** material signature of the pieces on the board, kept up to date by every change, see Material */
+    private long material;
+    /** undo records of the moves made so far, see makeMove for the layout */
+    private long[] undoStack = new long[256];
+    /** the key before each move on the undo stack, for unmaking and repetition detection */
+    private long[] keyHistory = new long[256];
+    /** the number of records on the undo stack */
+    private int ply;
+    /** bumped on every change to the board, so cached attack maps know when they are stale */
+    private long version;
+    /** cached attack map of each side */
+    private final long[] attackMaps = new long[2];
+    /** the version each cached attack map was computed at */
+    private final long[] attackMapVersions = {-1, -1};
+
+    /**
+     * Creates an empty position with white to move
+     */
+    public Position(){
+        Arrays.fill(board, NONE);
+        enPassantSquare = NO_SQUARE;
+    }
+
+    /**
+     * Creates a copy of another position
+     * @param other the position to copy
+     */
+    public Position(Position other){
+        copyFrom(other);
+    }
+
+    /**
+     * Makes this position a copy of another in place, its move history included
+     * @param other the position to copy
+     */
+    public void copyFrom(Position other){
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        System.arraycopy(other.board, 0, board, 0, board.length);
+        occupied = other.occupied;
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        key = other.key;
+        material = other.material;
+        if(undoStack.length < other.ply){
+            undoStack = new long[other.undoStack.length];
+            keyHistory = new long[other.keyHistory.length];
+        }
+        System.arraycopy(other.undoStack, 0, undoStack, 0, other.ply);
+        System.arraycopy(other.keyHistory, 0, keyHistory, 0, other.ply);
+        ply = other.ply;
+        version++;
+    }
+
+    /**
+     * Empties the position in place, as if it had just been created, so a position can be reused for loading many others
+     */
+    public void clear(){
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(colors, 0L);
+        Arrays.fill(board, NONE);
+        occupied = 0L;
+        sideToMove = WHITE;
+        castlingRights = 0;
+        enPassantSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        key = 0L;
+        material = 0L;
+        ply = 0;
+        version++;
+    }
+
+    /**
+     * Creates the standard starting position, white to move with all castling rights
+     * @return the position
+     */
+    public static Position startingPosition(){
+        Position position = new Position();
+        int[] backRank = {ROOK, KNIGHT, BISHOP, QUEEN, KING, BISHOP, KNIGHT, ROOK};
+        for(int file = 0; file < 8; file++){
+            position.put(Bitboards.square(file, 0), Pieces.make(WHITE, backRank[file]));
+            position.put(Bitboards.square(file, 1), Pieces.make(WHITE, PAWN));
+            position.put(Bitboards.square(file, 6), Pieces.make(BLACK, PAWN));
+            position.put(Bitboards.square(file, 7), Pieces.make(BLACK, backRank[file]));
+        }
+        position.setCastlingRights(WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        return position;
+    }
+
+    /**
+     * Places a piece on an empty square
+     * @param square the square
+     * @param piece the piece code
+     */
+    public void put(int square, int piece){
+        long bit = 1L << square;
+        pieces[piece] |= bit;
+        colors[Pieces.color(piece)] |= bit;
+        occupied |= bit;
+        board[square] = piece;
+        key ^= Zobrist.piece(piece, square);
+        material += Material.delta(piece, square);
+        version++;
+    }
+
+    /**
+     * Removes whatever piece is on a square
+     * @param square the square
+     * @return the removed piece code, NONE if the square was empty
+     */
+    public int remove(int square){
+        int piece = board[square];
+        if(piece != NONE){
+            long bit = 1L << square;
+            pieces[piece] ^= bit;
+            colors[Pieces.color(piece)] ^= bit;
+            occupied ^= bit;
+            board[square] = NONE;
+            key ^= Zobrist.piece(piece, square);
+            material -= Material.delta(piece, square);
+            version++;
+        }
+        return piece;
+    }
+
+    /**
+     * Makes a move in place, pushing an undo record so it can be taken back with unmakeMove
+     * Castling is recognised by the king moving two files and en passant by a pawn moving onto the en passant square
+     * The record packs, from the low bits up: from (6), to (6), moved piece (4), captured piece + 1 (5),
+     * castling rights (4), en passant square + 1 (7) and the halfmove clock (16)
+     * The en passant square is only set when an enemy pawn could actually capture, so it only changes the key when it matters
+     * @param from the square of the moving piece
+     * @param to the destination square
+     * @param promotion the kind a pawn promotes to, NONE for other moves
+     */
+    public void makeMove(int from, int to, int promotion){
+        int piece = board[from];
+        int color = Pieces.color(piece);
+        int kind = Pieces.kind(piece);
+        int capturedSquare = to;
+        if(kind == PAWN && to == enPassantSquare){
+            capturedSquare = color == WHITE ? to - 8 : to + 8;
+        }
+        int captured = board[capturedSquare];
+
+        if(ply == undoStack.length){
+            undoStack = Arrays.copyOf(undoStack, ply * 2);
+            keyHistory = Arrays.copyOf(keyHistory, ply * 2);
+        }
+        keyHistory[ply] = key;
+        undoStack[ply++] = from | (long) to << 6 | (long) piece << 12 | (long) (captured + 1) << 16
+                | (long) castlingRights << 21 | (long) (enPassantSquare + 1) << 25 | (long) halfmoveClock << 32;
+
+        if(captured != NONE){
+            remove(capturedSquare);
+        }
+        remove(from);
+        put(to, promotion == NONE ? piece : Pieces.make(color, promotion));
+
+        if(kind == KING && (to - from == 2 || from - to == 2)){
+            // The rook jumps from its corner to the square the king passed over
+            put((from + to) >>> 1, remove(to > from ? from + 3 : from - 4));
+        }
+
+        setCastlingRights(castlingRights & CASTLING_MASKS[from] & CASTLING_MASKS[to]);
+        int skipped = (from + to) >>> 1;
+        if(kind == PAWN && (to - from == 16 || from - to == 16)
+                && (Bitboards.pawnAttacksFrom(skipped, color) & pieces[Pieces.make(color ^ 1, PAWN)]) != 0){
+            setEnPassantSquare(skipped);
+        }
+        else{
+            setEnPassantSquare(NO_SQUARE);
+        }
+        halfmoveClock = kind == PAWN || captured != NONE ? 0 : halfmoveClock + 1;
+        if(color == BLACK){
+            fullmoveNumber++;
+        }
+        setSideToMove(color ^ 1);
+    }
+
+    /**
+     * Makes a packed move in place, see Moves for the layout
+     * @param move the move
+     */
+    public void makeMove(int move){
+        makeMove(Moves.from(move), Moves.to(move), Moves.promotionKind(move));
+    }
+
+    /**
+     * Takes back the last move made with makeMove, restoring the position exactly
+     */
+    public void unmakeMove(){
+        long record = undoStack[--ply];
+        int from = (int) record & 63;
+        int to = (int) (record >>> 6) & 63;
+        int piece = (int) (record >>> 12) & 15;
+        int captured = (int) (record >>> 16 & 31) - 1;
+        castlingRights = (int) (record >>> 21) & 15;
+        enPassantSquare = (int) (record >>> 25 & 127) - 1;
+        halfmoveClock = (int) (record >>> 32) & 0xFFFF;
+
+        int color = Pieces.color(piece);
+        int kind = Pieces.kind(piece);
+        sideToMove = color;
+        if(color == BLACK){
+            fullmoveNumber--;
+        }
+
+        if(kind == KING && (to - from == 2 || from - to == 2)){
+            put(to > from ? from + 3 : from - 4, remove((from + to) >>> 1));
+        }
+
+        remove(to);
+        put(from, piece);
+
+        if(captured != NONE){
+            if(kind == PAWN && to == enPassantSquare){
+                put(color == WHITE ? to - 8 : to + 8, captured);
+            }
+            else{
+                put(to, captured);
+            }
+        }
+        key = keyHistory[ply];
+    }
+
+    /**
+     * Counts how often the current position occurred before, with the same side to move, rights and en passant file
+     * Only looks back to the last capture or pawn move, since no earlier position can come back after one
+     * @return the number of earlier occurrences, 2 or more means threefold repetition
+     */
+    public int repetitionCount(){
+        int count = 0;
+        int limit = Math.max(ply - halfmoveClock, 0);
+        for(int i = ply - 2; i >= limit; i -= 2){
+            if(keyHistory[i] == key){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the attack set of the piece on a square, given the current occupancy
+     * @param square the square of the piece
+     * @return the attacked squares, empty if there is no piece
+     */
+    public long attacksFrom(int square){
+        int piece = board[square];
+        if(piece == NONE){
+            return 0L;
+        }
+        switch(Pieces.kind(piece)){
+            case PAWN:
+                return Bitboards.pawnAttacksFrom(square, Pieces.color(piece));
+            case KNIGHT:
+                return Bitboards.knightAttacksFrom(square);
+            case BISHOP:
+                return Bitboards.bishopAttacksFrom(square, occupied);
+            case ROOK:
+                return Bitboards.rookAttacksFrom(square, occupied);
+            case QUEEN:
+                return Bitboards.queenAttacksFrom(square, occupied);
+            default:
+                return Bitboards.kingAttacksFrom(square);
+        }
+    }
+
+    /**
+     * Gets the pieces of both colors attacking a square, working backwards from the square
+     * A knight on the square would attack every enemy knight that attacks it, and likewise for the other pieces
+     * @param square the target square
+     * @return the attacking pieces
+     */
+    public long attackersOf(int square){
+        return attackersOf(square, occupied);
+    }
+
+    /**
+     * Gets the pieces of both colors attacking a square, with sliders blocked by a different occupancy
+     * Pieces missing from the occupancy are not removed from the result, mask them out if they should be
+     * @param square the target square
+     * @param occupied the occupancy the sliders are blocked by
+     * @return the attacking pieces
+     */
+    public long attackersOf(int square, long occupied){
+        long diagonal = pieces[Pieces.make(WHITE, BISHOP)] | pieces[Pieces.make(BLACK, BISHOP)]
+                | pieces[Pieces.make(WHITE, QUEEN)] | pieces[Pieces.make(BLACK, QUEEN)];
+        long orthogonal = pieces[Pieces.make(WHITE, ROOK)] | pieces[Pieces.make(BLACK, ROOK)]
+                | pieces[Pieces.make(WHITE, QUEEN)] | pieces[Pieces.make(BLACK, QUEEN)];
+        return (Bitboards.pawnAttacksFrom(square, BLACK) & pieces[Pieces.make(WHITE, PAWN)])
+                | (Bitboards.pawnAttacksFrom(square, WHITE) & pieces[Pieces.make(BLACK, PAWN)])
+                | (Bitboards.knightAttacksFrom(square) & (pieces[Pieces.make(WHITE, KNIGHT)] | pieces[Pieces.make(BLACK, KNIGHT)]))
+                | (Bitboards.kingAttacksFrom(square) & (pieces[Pieces.make(WHITE, KING)] | pieces[Pieces.make(BLACK, KING)]))
+                | (Bitboards.bishopAttacksFrom(square, occupied) & diagonal)
+                | (Bitboards.rookAttacksFrom(square, occupied) & orthogonal);
+    }
+
+    /**
+     * Checks whether a side attacks a square
+     * Uses the cached attack map when it is current, otherwise works backwards from the square, cheapest pieces first
+     * @param square the target square
+     * @param color the attacking side
+     * @return true if any piece of color attacks the square
+     */
+    public boolean isSquareAttacked(int square, int color){
+        if(attackMapVersions[color] == version){
+            return (attackMaps[color] & (1L << square)) != 0;
+        }
+        if((Bitboards.pawnAttacksFrom(square, color ^ 1) & pieces[Pieces.make(color, PAWN)]) != 0
+                || (Bitboards.knightAttacksFrom(square) & pieces[Pieces.make(color, KNIGHT)]) != 0
+                || (Bitboards.kingAttacksFrom(square) & pieces[Pieces.make(color, KING)]) != 0){
+            return true;
+        }
+        long queens = pieces[Pieces.make(color, QUEEN)];
+        long diagonal = pieces[Pieces.make(color, BISHOP)] | queens;
+        long orthogonal = pieces[Pieces.make(color, ROOK)] | queens;
+        // Sliders that could not reach the square even on an empty board need no ray walk
+        return ((Bitboards.bishopRaysFrom(square) & diagonal) != 0 && (Bitboards.bishopAttacksFrom(square, occupied) & diagonal) != 0)
+                || ((Bitboards.rookRaysFrom(square) & orthogonal) != 0 && (Bitboards.rookAttacksFrom(square, occupied) & orthogonal) != 0);
+    }
+
+    /**
+     * Gets every square attacked by a side, cached until the board next changes
+     * Repeated queries within one ply, such as testing each castling square, share a single computation
+     * @param color the attacking side
+     * @return the attacked squares
+     */
+    public long attackMap(int color){
+        if(attackMapVersions[color] != version){
+            attackMaps[color] = attacks(color, occupied);
+            attackMapVersions[color] = version;
+        }
+        return attackMaps[color];
+    }
+
+    /**
+     * Gets every square attacked by a side
+     * @param color the attacking side
+     * @return the attacked squares
+     */
+    public long attacks(int color){
+        return attacks(color, occupied);
+    }
+
+    /**
+     * Gets every square attacked by a side, as if the board had a different occupancy
+     * Useful for letting sliders see through a piece, such as the king that is about to step away from them
+     * @param color the attacking side
+     * @param occupied the occupancy the sliders are blocked by
+     * @return the attacked squares
+     */
+    public long attacks(int color, long occupied){
+        long queens = pieces[Pieces.make(color, QUEEN)];
+        long attacks = Bitboards.pawnAttacks(pieces[Pieces.make(color, PAWN)], color)
+                | Bitboards.knightAttacks(pieces[Pieces.make(color, KNIGHT)])
+                | Bitboards.kingAttacks(pieces[Pieces.make(color, KING)]);
+        for(long sliders = pieces[Pieces.make(color, BISHOP)] | queens; sliders != 0; sliders &= sliders - 1){
+            attacks |= Bitboards.bishopAttacksFrom(Long.numberOfTrailingZeros(sliders), occupied);
+        }
+        for(long sliders = pieces[Pieces.make(color, ROOK)] | queens; sliders != 0; sliders &= sliders - 1){
+            attacks |= Bitboards.rookAttacksFrom(Long.numberOfTrailingZeros(sliders), occupied);
+        }
+        return attacks;
+    }
+
+    /**
+     * Gets the pseudo-legal destinations of the piece on a square
+     * Includes pawn pushes, en passant and castling, but does not check whether the king is left in check
+     * @param square the square of the piece
+     * @return the destination squares, empty if there is no piece
+     */
+    public long pseudoLegalTargets(int square){
+        int piece = board[square];
+        if(piece == NONE){
+            return 0L;
+        }
+        int color = Pieces.color(piece);
+
+        switch(Pieces.kind(piece)){
+            case PAWN:
+                long attacks = Bitboards.pawnAttacksFrom(square, color);
+                long targets = attacks & colors[color ^ 1];
+                if(enPassantSquare != NO_SQUARE && color == sideToMove){
+                    targets |= attacks & (1L << enPassantSquare);
+                }
+                long single = Bitboards.pawnPushFrom(square, color) & ~occupied;
+                // Double pushes are single pushes that landed on their third rank, pushed once more
+                if((single & (color == WHITE ? Bitboards.RANK_2 << 8 : Bitboards.RANK_7 >>> 8)) != 0){
+                    targets |= Bitboards.pawnPushFrom(Long.numberOfTrailingZeros(single), color) & ~occupied;
+                }
+                return targets | single;
+            case KING:
+                return (Bitboards.kingAttacksFrom(square) & ~colors[color]) | castlingTargets(color);
+            default:
+                return attacksFrom(square) & ~colors[color];
+        }
+    }
+
+    /**
+     * Gets the king destinations of any castling moves still available to a side, ignoring checks
+     * @param color the castling side
+     * @return the destinations of the king
+     */
+    private long castlingTargets(int color){
+        long targets = 0L;
+        int kingside = color == WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+        int queenside = color == WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+        int home = color == WHITE ? 4 : 60;
+
+        if((castlingRights & kingside) != 0 && (occupied & (3L << (home + 1))) == 0){
+            targets |= 1L << (home + 2);
+        }
+        if((castlingRights & queenside) != 0 && (occupied & (7L << (home - 3))) == 0){
+            targets |= 1L << (home - 2);
+        }
+        return targets;
+    }
+
+    /**
+     * Gets the piece code on a square
+     * @param square the square
+     * @return the piece code, NONE if the square is empty
+     */
+    public int pieceAt(int square){
+        return board[square];
+    }
+
+    /**
+     * Gets the bitboard of one kind of piece for one side
+     * @param color the side
+     * @param kind the kind of piece
+     * @return the bitboard
+     */
+    public long pieces(int color, int kind){
+        return pieces[Pieces.make(color, kind)];
+    }
+
+    /**
+     * Gets all pieces of one side
+     * @param color the side
+     * @return the bitboard
+     */
+    public long occupancy(int color){
+        return colors[color];
+    }
+
+    public long occupied(){
+        return occupied;
+    }
+
+    /**
+     * Gets the square of a side's king
+     * @param color the side
+     * @return the square, 64 if the side has no king
+     */
+    public int kingSquare(int color){
+        return Long.numberOfTrailingZeros(pieces[Pieces.make(color, KING)]);
+    }
+
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    public void setSideToMove(int sideToMove) {
+        if(this.sideToMove != sideToMove){
+            key ^= Zobrist.blackToMove();
+        }
+        this.sideToMove = sideToMove;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public void setCastlingRights(int castlingRights) {
+        key ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(castlingRights);
+        this.castlingRights = castlingRights;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public void setEnPassantSquare(int enPassantSquare) {
+        key ^= Zobrist.enPassant(this.enPassantSquare) ^ Zobrist.enPassant(enPassantSquare);
+        this.enPassantSquare = enPassantSquare;
+    }
+
+    /**
+     * Gets the Zobrist key of the position, which covers pieces, side to move, castling rights and en passant file
+     * Equal positions always have equal keys, so the key can index repetition history and caches
+     * @return the key
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * Gets the material signature, kept up to date as pieces are captured and promoted
+     * @return the signature, see Material
+     */
+    public long getMaterial() {
+        return material;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    /**
+     * Gets the number of moves that can currently be taken back
+     * @return the depth of the undo stack
+     */
+    public int getPly() {
+        return ply;
+    }
+}
@@ -0,0 +1,79 @@
+package dev.huntstew.retrochess.engine;
+
+import static dev.huntstew.retrochess.engine.Pieces.WHITE;
+
+/**
+ * Game ending rules, kept apart from the UI so they can run and be measured anywhere
+ */
+public final class Rules {
+    private Rules(){}
+
+    /**
+     * Decides whether the game is over, checked in order: mate or stalemate, threefold repetition, unwinnable material,
+     * an endgame whose result with best play is known and the fifty move rule
+     * Only the side to move can be mated or stalemated
+     * @param position the position after the last move
+     * @param generator a generator to test for legal moves with
+     * @return the outcome, ONGOING if the game continues
+     */
+    public static Outcome adjudicate(Position position, MoveGenerator generator){
+        int color = position.getSideToMove();
+        boolean hasMove = generator.hasAnyLegalMove(position, color);
+        return adjudicate(position, hasMove, generator.isInCheck());
+    }
+
+    /**
+     * Decides whether the game is over when the legal moves of the side to move are already known, such as from a cached move list
+     * @param position the position after the last move
+     * @param hasMove whether the side to move has a legal move
+     * @param inCheck whether the side to move is in check
+     * @return the outcome, ONGOING if the game continues
+     */
+    public static Outcome adjudicate(Position position, boolean hasMove, boolean inCheck){
+        if(!hasMove){
+            if(inCheck){
+                return position.getSideToMove() == WHITE ? Outcome.BLACK_WINS : Outcome.WHITE_WINS;
+            }
+            return Outcome.STALEMATE;
+        }
+
+        // The position keeps the Zobrist key of every earlier position, two earlier matches make three appearances
+        if(position.repetitionCount() >= 2){
+            return Outcome.THREEFOLD_REPETITION;
+        }
+
+        if(isUnwinnable(position)){
+            return Outcome.UNWINNABLE;
+        }
+
+        // Known endgames are decided now rather than played out to mate or to the fifty move rule
+        switch(Bitbases.probe(position)){
+            case Bitbases.WIN:
+                return position.getSideToMove() == WHITE ? Outcome.WHITE_WINS : Outcome.BLACK_WINS;
+            case Bitbases.LOSS:
+                return position.getSideToMove() == WHITE ? Outcome.BLACK_WINS : Outcome.WHITE_WINS;
+            case Bitbases.DRAW:
+                return Outcome.DRAWN_ENDGAME;
+            default:
+                break;
+        }
+
+        // The halfmove clock counts plies since a capture or pawn move, after 50 moves from both players, ends the game
+        if(position.getHalfmoveClock() >= 100){
+            return Outcome.FIFTY_MOVE_RULE;
+        }
+
+        return Outcome.ONGOING;
+    }
+
+    /**
+     * Checks whether neither side has the material to ever mate, a single lookup on the position's material signature
+     * A side can not mate with at most a king and one minor piece, nor can anyone when all the bishops stand on one color of square
+     * Opposite colored bishops on either side can still mate, so they count as winnable
+     * @param position the position to check
+     * @return true if the game can no longer be won by either side
+     */
+    public static boolean isUnwinnable(Position position){
+        return Material.isInsufficient(position.getMaterial());
+    }
+}
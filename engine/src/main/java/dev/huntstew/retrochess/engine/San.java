@@ -0,0 +1,199 @@
+package dev.huntstew.retrochess.engine;
+
+import static dev.huntstew.retrochess.engine.Pieces.KING;
+import static dev.huntstew.retrochess.engine.Pieces.NONE;
+import static dev.huntstew.retrochess.engine.Pieces.PAWN;
+import static dev.huntstew.retrochess.engine.Pieces.QUEEN;
+
+/**
+ * Standard Algebraic Notation, such as Nbd7, exd6, O-O or e8=Q+
+ * Moves are read by matching them against the legal moves of the position, so only legal moves are ever returned
+ * Keeps its own generator and move lists, so reading and writing moves creates no collections
+ */
+public final class San {
+    /** SAN letters of the piece kinds, pawns have none */
+    private static final String PIECE_LETTERS = " NBRQK";
+
+    private final MoveGenerator generator = new MoveGenerator();
+    private final MoveList moves = new MoveList();
+    private final MoveList replies = new MoveList();
+
+    /**
+     * Reads a move, annotations such as +, #, ! and ? are ignored, castling may be written with zeros
+     * A promotion without a piece is taken to be to a queen
+     * @param position the position the move is made on
+     * @param san the move
+     * @return the move, Moves.NO_MOVE if it is not a legal move or could be more than one
+     */
+    public int parse(Position position, CharSequence san){
+        int end = san.length();
+        while(end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0){
+            end--;
+        }
+        int count = generator.generate(position, position.getSideToMove(), moves);
+
+        if(isCastle(san, end)){
+            int kingSquare = position.kingSquare(position.getSideToMove());
+            int to = end == 5 ? kingSquare - 2 : kingSquare + 2;
+            for(int i = 0; i < count; i++){
+                if(Moves.flag(moves.get(i)) == Moves.CASTLE && Moves.to(moves.get(i)) == to){
+                    return moves.get(i);
+                }
+            }
+            return Moves.NO_MOVE;
+        }
+
+        int promotion = NONE;
+        if(end >= 2 && san.charAt(end - 2) == '='){
+            promotion = PIECE_LETTERS.indexOf(san.charAt(end - 1));
+            end -= 2;
+        }
+        else if(end >= 3 && "NBRQ".indexOf(san.charAt(end - 1)) >= 0 && san.charAt(0) >= 'a' && san.charAt(0) <= 'h'){
+            promotion = PIECE_LETTERS.indexOf(san.charAt(end - 1));
+            end--;
+        }
+        if(promotion == KING || end < 2){
+            return Moves.NO_MOVE;
+        }
+
+        int start = 0;
+        int kind = PAWN;
+        if(PIECE_LETTERS.indexOf(san.charAt(0)) > 0){
+            kind = PIECE_LETTERS.indexOf(san.charAt(0));
+            start = 1;
+        }
+
+        char toFile = san.charAt(end - 2);
+        char toRank = san.charAt(end - 1);
+        if(toFile < 'a' || toFile > 'h' || toRank < '1' || toRank > '8'){
+            return Moves.NO_MOVE;
+        }
+        int to = Bitboards.square(toFile - 'a', toRank - '1');
+
+        int fromFile = -1;
+        int fromRank = -1;
+        for(int i = start; i < end - 2; i++){
+            char c = san.charAt(i);
+            if(c >= 'a' && c <= 'h'){
+                fromFile = c - 'a';
+            }
+            else if(c >= '1' && c <= '8'){
+                fromRank = c - '1';
+            }
+            else if(c != 'x' && c != '-' && c != ':'){
+                return Moves.NO_MOVE;
+            }
+        }
+
+        int found = Moves.NO_MOVE;
+        for(int i = 0; i < count; i++){
+            int move = moves.get(i);
+            int from = Moves.from(move);
+            if(Moves.to(move) != to || Pieces.kind(position.pieceAt(from)) != kind
+                    || fromFile >= 0 && Bitboards.file(from) != fromFile || fromRank >= 0 && Bitboards.rank(from) != fromRank){
+                continue;
+            }
+            int moveKind = Moves.promotionKind(move);
+            if(moveKind != NONE && moveKind != (promotion == NONE ? QUEEN : promotion) || moveKind == NONE && promotion != NONE){
+                continue;
+            }
+            if(found != Moves.NO_MOVE){
+                return Moves.NO_MOVE;
+            }
+            found = move;
+        }
+        return found;
+    }
+
+    /**
+     * Writes a legal move, with only as much of the starting square as tells it apart and + or # when it checks or mates
+     * @param position the position the move is made on, it is the same again once this returns
+     * @param move the move
+     * @param san where to append the move
+     */
+    public void format(Position position, int move, StringBuilder san){
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int kind = Pieces.kind(position.pieceAt(from));
+
+        if(Moves.flag(move) == Moves.CASTLE){
+            san.append(to > from ? "O-O" : "O-O-O");
+        }
+        else{
+            boolean capture = position.pieceAt(to) != NONE || Moves.flag(move) == Moves.EN_PASSANT;
+            if(kind == PAWN){
+                if(capture){
+                    san.append((char) ('a' + Bitboards.file(from)));
+                }
+            }
+            else{
+                san.append(PIECE_LETTERS.charAt(kind));
+                appendDisambiguation(position, move, kind, san);
+            }
+            if(capture){
+                san.append('x');
+            }
+            san.append((char) ('a' + Bitboards.file(to))).append((char) ('1' + Bitboards.rank(to)));
+            if(Moves.flag(move) == Moves.PROMOTION){
+                san.append('=').append(PIECE_LETTERS.charAt(Moves.promotionKind(move)));
+            }
+        }
+
+        position.makeMove(move);
+        int count = generator.generate(position, position.getSideToMove(), replies);
+        if(generator.isInCheck()){
+            san.append(count == 0 ? '#' : '+');
+        }
+        position.unmakeMove();
+    }
+
+    /**
+     * Writes a legal move
+     * @param position the position the move is made on
+     * @param move the move
+     * @return the move in SAN
+     */
+    public String format(Position position, int move){
+        StringBuilder san = new StringBuilder(8);
+        format(position, move, san);
+        return san.toString();
+    }
+
+    /**
+     * Adds the file, rank or both of the starting square when another piece of the same kind could move to the same square
+     */
+    private void appendDisambiguation(Position position, int move, int kind, StringBuilder san){
+        int from = Moves.from(move);
+        int count = generator.generate(position, position.getSideToMove(), moves);
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for(int i = 0; i < count; i++){
+            int other = Moves.from(moves.get(i));
+            if(Moves.to(moves.get(i)) == Moves.to(move) && other != from && Pieces.kind(position.pieceAt(other)) == kind){
+                ambiguous = true;
+                sameFile |= Bitboards.file(other) == Bitboards.file(from);
+                sameRank |= Bitboards.rank(other) == Bitboards.rank(from);
+            }
+        }
+        if(ambiguous && (!sameFile || sameRank)){
+            san.append((char) ('a' + Bitboards.file(from)));
+        }
+        if(ambiguous && sameFile){
+            san.append((char) ('1' + Bitboards.rank(from)));
+        }
+    }
+
+    private static boolean isCastle(CharSequence san, int end){
+        if(end != 3 && end != 5){
+            return false;
+        }
+        for(int i = 0; i < end; i++){
+            char c = san.charAt(i);
+            if(i % 2 == 0 ? c != 'O' && c != '0' : c != '-'){
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,450 @@
+package dev.huntstew.retrochess.engine;
+
+import java.util.Arrays;
+
+import static dev.huntstew.retrochess.engine.Pieces.NONE;
+
+/**
+ * Iterative deepening principal variation search, with a quiescence search of captures at the leaves
+ * Results are kept in a transposition table, which cuts off positions already searched deeply enough and supplies their best move
+ * Moves come from a MovePicker per ply: the hash move or the last iteration's principal variation, captures that do not lose material by MVV-LVA,
+ * killer moves, quiet moves by the history heuristic and last the losing captures, with quiet moves only generated once they are needed
+ * A search runs until it finishes its depth, runs out of nodes or time, or is stopped from another thread
+ */
+public final class Search {
+    /** the deepest ply the search reaches, including quiescence */
+    public static final int MAX_PLY = 128;
+    /** score of mate on the board, mate in n plies scores MATE - n */
+    public static final int MATE = 32000;
+    private static final int INFINITY = 32001;
+    /** added to the evaluation of an endgame Bitbases knows is won, well clear of any material score and of the mate scores */
+    private static final int KNOWN_WIN = 10000;
+    /** the transposition table size used when none is given */
+    public static final int DEFAULT_TABLE_MEGABYTES = 16;
+
+    /** history scores are halved once one grows past this, so recent cutoffs keep counting for more than old ones */
+    private static final int HISTORY_LIMIT = 1 << 20;
+    /** the clock is read once every this many nodes + 1 */
+    private static final int CLOCK_INTERVAL = 1023;
+
+    private final MoveGenerator generator = new MoveGenerator();
+    private final TranspositionTable table;
+    private final StaticExchange exchange = new StaticExchange();
+    /** one picker per ply, so searching creates no lists */
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    /** the moves of the root, only generated when a search is stopped before it has a best move */
+    private final MoveList rootMoves = new MoveList();
+    /** two quiet moves per ply that last caused a beta cutoff */
+    private final int[][] killers = new int[MAX_PLY][2];
+    /** how often each quiet from-to move caused a cutoff, per color, weighted by depth */
+    private final int[][] history = new int[2][64 * 64];
+    /** triangular principal variation table, row ply holds the best line found from that ply */
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    /** the principal variation of the last completed iteration */
+    private final int[] bestLine = new int[MAX_PLY];
+    private int bestLineLength;
+
+    private Position position;
+    /** the material signature of the root position */
+    private long rootMaterial;
+    private long nodes;
+    private long maxNodes;
+    private boolean timed;
+    private long deadline;
+    /** set once this search is out of nodes or time or stopped from outside, checked at every node */
+    private volatile boolean stopped;
+    /** a stop from another thread, kept until clearStop so one made just before a search starts still stops it */
+    private volatile boolean stopRequested;
+    private SearchListener listener;
+
+    private int score;
+    private int depth;
+
+    /**
+     * Creates a search with a transposition table of the default size
+     */
+    public Search(){
+        this(new TranspositionTable(DEFAULT_TABLE_MEGABYTES));
+    }
+
+    /**
+     * Creates a search using a given transposition table
+     * @param table the table, kept between searches
+     */
+    public Search(TranspositionTable table){
+        this.table = table;
+        for(int ply = 0; ply < MAX_PLY; ply++){
+            pickers[ply] = new MovePicker(exchange);
+        }
+    }
+
+    /**
+     * Searches a position for the best move of the side to move
+     * The position is used as the search's board, it is the same as before once the search returns
+     * @param position the position to search
+     * @param maxDepth the deepest iteration to run
+     * @param maxNodes the number of nodes to stop after, Long.MAX_VALUE for no limit
+     * @param maxMillis the time to stop after, Long.MAX_VALUE for no limit
+     * @return the best move found, Moves.NO_MOVE if the side to move has no legal moves
+     */
+    public int search(Position position, int maxDepth, long maxNodes, long maxMillis){
+        table.newSearch();
+        return iterate(position, 1, maxDepth, maxNodes, maxMillis);
+    }
+
+    /**
+     * Runs the iterative deepening loop, without starting a new table generation
+     * @param position the position to search
+     * @param startDepth the first iteration to run, helper threads of a ParallelSearch start at different depths
+     * @param maxDepth the deepest iteration to run
+     * @param maxNodes the number of nodes to stop after, Long.MAX_VALUE for no limit
+     * @param maxMillis the time to stop after, Long.MAX_VALUE for no limit
+     * @return the best move found, Moves.NO_MOVE if the side to move has no legal moves
+     */
+    int iterate(Position position, int startDepth, int maxDepth, long maxNodes, long maxMillis){
+        this.position = position;
+        this.rootMaterial = position.getMaterial();
+        this.maxNodes = maxNodes;
+        timed = maxMillis != Long.MAX_VALUE;
+        deadline = timed ? System.nanoTime() + maxMillis * 1_000_000L : 0L;
+        nodes = 0;
+        // Cleared before the request is read, so a stop made in between is still seen
+        stopped = false;
+        if(stopRequested){
+            stopped = true;
+        }
+        score = 0;
+        depth = 0;
+        bestLineLength = 0;
+        for(int[] moves : killers){
+            Arrays.fill(moves, Moves.NO_MOVE);
+        }
+        for(int[] scores : history){
+            Arrays.fill(scores, 0);
+        }
+
+        for(int iteration = startDepth; iteration <= Math.min(maxDepth, MAX_PLY - 1); iteration++){
+            int result = pvs(iteration, 0, -INFINITY, INFINITY);
+            // An unfinished iteration is only trusted when there is nothing better
+            if(stopped && bestLineLength > 0){
+                break;
+            }
+            score = result;
+            depth = iteration;
+            bestLineLength = pvLength[0];
+            System.arraycopy(pv[0], 0, bestLine, 0, bestLineLength);
+            if(listener != null && bestLineLength > 0){
+                listener.iterationFinished(this);
+            }
+            if(stopped || MATE - Math.abs(score) <= iteration){
+                break;
+            }
+        }
+
+        if(bestLineLength == 0){
+            // Stopped before any move was searched, any legal move is better than none
+            return generator.generate(position, position.getSideToMove(), rootMoves) > 0 ? rootMoves.get(0) : Moves.NO_MOVE;
+        }
+        return bestLine[0];
+    }
+
+    /**
+     * Stops a running search from another thread, it returns the best move found so far
+     * The stop stays in effect until clearStop, so a stop made just before a search starts is not lost
+     * Running out of nodes or time only ends the search it happens in
+     */
+    public void stop(){
+        stopRequested = true;
+        stopped = true;
+    }
+
+    /**
+     * Lets searches run again after a stop, call once the stopped search has returned
+     */
+    public void clearStop(){
+        stopRequested = false;
+        stopped = false;
+    }
+
+    /**
+     * Sets the listener told about every finished iteration, called on the searching thread
+     * @param listener the listener, null for none
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Principal variation search of one node
+     * The first move is searched with the full window, the rest with a null window that is widened only if they beat alpha
+     * @param depth the remaining depth
+     * @param ply the distance from the root
+     * @param alpha the score the side to move already has
+     * @param beta the score the opponent already has
+     * @return the score of the node from the side to move's point of view
+     */
+    private int pvs(int depth, int ply, int alpha, int beta){
+        pvLength[ply] = ply;
+        if(ply > 0 && (position.getHalfmoveClock() >= 100 || position.repetitionCount() > 0)){
+            return 0;
+        }
+        // Generating a table would hold up the search with no clock check, so until they are ready it goes without
+        if(ply > 0 && Bitbases.isReady()){
+            int known = Bitbases.probe(position);
+            if(known == Bitbases.DRAW){
+                return 0;
+            }
+            // Within the root's own endgame every line is a win, so the search plays on towards mate instead of stopping at the first one
+            if(known != Bitbases.UNKNOWN && position.getMaterial() != rootMaterial){
+                return (known == Bitbases.WIN ? KNOWN_WIN : -KNOWN_WIN) + Evaluation.evaluate(position);
+            }
+        }
+        if(depth <= 0){
+            return quiesce(ply, alpha, beta);
+        }
+        countNode();
+        if(stopped){
+            return 0;
+        }
+        if(ply >= MAX_PLY - 1){
+            return Evaluation.evaluate(position);
+        }
+
+        long key = position.getKey();
+        long entry = table.probe(key);
+        int hashMove = Moves.NO_MOVE;
+        if(entry != TranspositionTable.MISS){
+            hashMove = TranspositionTable.move(entry);
+            // Principal variation nodes are always searched, so the line stays complete
+            if(beta - alpha == 1 && TranspositionTable.depth(entry) >= depth){
+                int stored = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if(bound == TranspositionTable.EXACT || bound == TranspositionTable.LOWER && stored >= beta || bound == TranspositionTable.UPPER && stored <= alpha){
+                    return stored;
+                }
+            }
+        }
+
+        MovePicker picker = pickers[ply];
+        // Without a hash move the last iteration's principal variation is the best guess
+        int firstMove = hashMove != Moves.NO_MOVE ? hashMove : ply < bestLineLength ? bestLine[ply] : Moves.NO_MOVE;
+        picker.init(position, firstMove, killers[ply][0], killers[ply][1], history[position.getSideToMove()]);
+        boolean inCheck = picker.isInCheck();
+        // Checks are searched a ply deeper so forcing lines are not cut off at the horizon
+        if(inCheck){
+            depth++;
+        }
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Moves.NO_MOVE;
+        int searched = 0;
+        for(int move = picker.next(); move != Moves.NO_MOVE; move = picker.next()){
+            boolean quiet = isQuiet(move);
+
+            position.makeMove(move);
+            int value;
+            if(searched++ == 0){
+                value = -pvs(depth - 1, ply + 1, -beta, -alpha);
+            }
+            else{
+                value = -pvs(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if(value > alpha && value < beta){
+                    value = -pvs(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            position.unmakeMove();
+
+            if(stopped){
+                return 0;
+            }
+            if(value > best){
+                best = value;
+                if(value > alpha){
+                    alpha = value;
+                    bestMove = move;
+                    updatePv(ply, move);
+                    if(value >= beta){
+                        if(quiet){
+                            rewardQuiet(move, ply, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if(searched == 0){
+            return inCheck ? -MATE + ply : 0;
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Searches captures and promotions until the position is quiet, so the leaves are not evaluated in the middle of an exchange
+     * The side to move can stand pat on the static evaluation, except in check where every evasion is searched
+     * @param ply the distance from the root
+     * @param alpha the score the side to move already has
+     * @param beta the score the opponent already has
+     * @return the score of the node from the side to move's point of view
+     */
+    private int quiesce(int ply, int alpha, int beta){
+        pvLength[ply] = ply;
+        countNode();
+        if(stopped){
+            return 0;
+        }
+        if(ply >= MAX_PLY - 1){
+            return Evaluation.evaluate(position);
+        }
+
+        MovePicker picker = pickers[ply];
+        picker.initNoisy(position, history[position.getSideToMove()]);
+        boolean inCheck = picker.isInCheck();
+
+        int best = -INFINITY;
+        if(!inCheck){
+            best = Evaluation.evaluate(position);
+            if(best >= beta){
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+
+        // Out of check only captures and queen promotions that do not lose material are searched
+        for(int move = picker.next(); move != Moves.NO_MOVE; move = picker.next()){
+            position.makeMove(move);
+            int value = -quiesce(ply + 1, -beta, -alpha);
+            position.unmakeMove();
+
+            if(stopped){
+                return 0;
+            }
+            if(value > best){
+                best = value;
+                if(value > alpha){
+                    alpha = value;
+                    updatePv(ply, move);
+                    if(value >= beta){
+                        break;
+                    }
+                }
+            }
+        }
+        // In check every move was tried, so having none is mate
+        if(best == -INFINITY){
+            return -MATE + ply;
+        }
+        return best;
+    }
+
+    /**
+     * Counts a node and stops the search once it is out of nodes or time
+     */
+    private void countNode(){
+        nodes++;
+        if(nodes >= maxNodes || timed && (nodes & CLOCK_INTERVAL) == 0 && System.nanoTime() - deadline > 0){
+            stopped = true;
+        }
+    }
+
+    /**
+     * Checks whether a move neither captures nor promotes
+     * @param move the move, not yet made
+     * @return true for quiet moves
+     */
+    private boolean isQuiet(int move){
+        return position.pieceAt(Moves.to(move)) == NONE && Moves.flag(move) != Moves.EN_PASSANT && Moves.flag(move) != Moves.PROMOTION;
+    }
+
+    /**
+     * Makes a move the start of the principal variation of a ply, followed by the line found below it
+     * @param ply the ply
+     * @param move the new best move
+     */
+    private void updatePv(int ply, int move){
+        pv[ply][ply] = move;
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+        pvLength[ply] = pvLength[ply + 1];
+    }
+
+    /**
+     * Remembers a quiet move that caused a beta cutoff as a killer and in the history table
+     * @param move the move
+     * @param ply the ply it was made at
+     * @param depth the remaining depth, deeper cutoffs count for more
+     */
+    private void rewardQuiet(int move, int ply, int depth){
+        if(killers[ply][0] != move){
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] historyScores = history[position.getSideToMove()];
+        historyScores[move & 4095] += depth * depth;
+        if(historyScores[move & 4095] > HISTORY_LIMIT){
+            for(int i = 0; i < historyScores.length; i++){
+                historyScores[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * Makes a mate score relative to the node it was found at, as the same position can be reached at any ply
+     * @param score the score relative to the root
+     * @param ply the ply of the node
+     * @return the score to store
+     */
+    private static int toTable(int score, int ply){
+        return score >= MATE - MAX_PLY ? score + ply : score <= -MATE + MAX_PLY ? score - ply : score;
+    }
+
+    /**
+     * Makes a stored mate score relative to the root again
+     * @param score the stored score
+     * @param ply the ply of the node
+     * @return the score relative to the root
+     */
+    private static int fromTable(int score, int ply){
+        return score >= MATE - MAX_PLY ? score - ply : score <= -MATE + MAX_PLY ? score + ply : score;
+    }
+
+    /**
+     * Checks whether a score is a forced mate for either side
+     * @param score the score
+     * @return true if the score is a mate in some number of plies
+     */
+    public static boolean isMate(int score){
+        return Math.abs(score) >= MATE - MAX_PLY;
+    }
+
+    /**
+     * Gets the score of the last completed iteration
+     * @return the score in centipawns from the side to move's point of view, see MATE for mates
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the depth of the last completed iteration
+     * @return the depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the principal variation of the last completed iteration
+     * @return the expected line of play, starting with the best move
+     */
+    public int[] getPrincipalVariation() {
+        return Arrays.copyOf(bestLine, bestLineLength);
+    }
+}
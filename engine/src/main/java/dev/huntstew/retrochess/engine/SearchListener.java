@@ -0,0 +1,12 @@
+package dev.huntstew.retrochess.engine;
+
+/**
+ * Told about the progress of a search, such as to report it to a GUI
+ */
+public interface SearchListener {
+    /**
+     * Called on the searching thread after every completed iteration
+     * @param search the search, its depth, score, nodes and principal variation are those of the iteration
+     */
+    void iterationFinished(Search search);
+}
@@ -0,0 +1,88 @@
+package dev.huntstew.retrochess.engine;
+
+import static dev.huntstew.retrochess.engine.Pieces.KING;
+import static dev.huntstew.retrochess.engine.Pieces.NONE;
+import static dev.huntstew.retrochess.engine.Pieces.PAWN;
+
+/**
+ * Static exchange evaluation, what a capture wins or loses once every piece bearing on its square has traded off
+ * Each side recaptures with its least valuable attacker and may stop whenever going on would lose more,
+ * sliders behind a piece that has captured join in as it leaves, and pins are not taken into account
+ * An instance keeps the gain of every capture in one array reused by each call, so use one per thread
+ */
+public final class StaticExchange {
+    /** more than any exchange can win, so the king is only ever the last piece to capture */
+    private static final int KING_VALUE = 20000;
+
+    /** the gain of the side to move at each capture, more captures than any square can have attackers */
+    private final int[] gain = new int[32];
+
+    /**
+     * Works out the material a move wins for the side making it, without making it
+     * @param position the position before the move
+     * @param move the move, usually a capture or a promotion, a quiet move scores what is lost if the moved piece is taken
+     * @return the gain in centipawns, negative if the move loses material
+     */
+    public int evaluate(Position position, int move){
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        long occupied = position.occupied() ^ Bitboards.bit(from);
+
+        int captured = position.pieceAt(to);
+        if(Moves.flag(move) == Moves.EN_PASSANT){
+            occupied ^= Bitboards.bit(Bitboards.square(Bitboards.file(to), Bitboards.rank(from)));
+            gain[0] = Evaluation.VALUES[PAWN];
+        }
+        else{
+            gain[0] = captured == NONE ? 0 : Evaluation.VALUES[Pieces.kind(captured)];
+        }
+        // The piece standing on the square, the next one to be taken
+        int onSquare = Pieces.kind(position.pieceAt(from));
+        if(Moves.flag(move) == Moves.PROMOTION){
+            onSquare = Moves.promotionKind(move);
+            gain[0] += Evaluation.VALUES[onSquare] - Evaluation.VALUES[PAWN];
+        }
+
+        int side = position.getSideToMove() ^ 1;
+        long attackers = position.attackersOf(to, occupied) & occupied;
+        int depth = 0;
+        while(true){
+            long ours = attackers & position.occupancy(side);
+            if(ours == 0){
+                break;
+            }
+            int kind = PAWN;
+            long attacker = ours & position.pieces(side, kind);
+            while(attacker == 0){
+                attacker = ours & position.pieces(side, ++kind);
+            }
+            // The king may not take a piece that is still defended
+            if(kind == KING && (attackers & position.occupancy(side ^ 1)) != 0){
+                break;
+            }
+
+            depth++;
+            gain[depth] = value(onSquare) - gain[depth - 1];
+            // Not taking and taking unanswered both lose for this side, so it does not take and the exchange ends a capture earlier
+            if(Math.max(-gain[depth - 1], gain[depth]) < 0){
+                depth--;
+                break;
+            }
+            occupied ^= Long.lowestOneBit(attacker);
+            attackers = position.attackersOf(to, occupied) & occupied;
+            onSquare = kind;
+            side ^= 1;
+        }
+
+        // Back from the last capture, each side takes only if it gains by it
+        while(depth > 0){
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+
+    private static int value(int kind){
+        return kind == KING ? KING_VALUE : Evaluation.VALUES[kind];
+    }
+}
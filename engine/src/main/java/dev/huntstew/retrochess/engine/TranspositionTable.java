@@ -0,0 +1,148 @@
+package dev.huntstew.retrochess.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed size hash table of search results, stored in a direct ByteBuffer outside the Java heap so it never adds to garbage collection
+ * Every entry is 16 bytes, the position's key XORed with the packed data, followed by the data, see probe
+ * Entries come in buckets of two, the first keeps the deepest result and the second always takes the newest
+ * The table can be shared by searches on several threads without locks, an entry torn by two threads writing
+ * at once no longer XORs back to its key, so it reads as a miss
+ */
+public final class TranspositionTable {
+    /** no entry was found */
+    public static final long MISS = 0L;
+
+    /** the score is exact */
+    public static final int EXACT = 1;
+    /** the score is at least the stored score, the search failed high */
+    public static final int LOWER = 2;
+    /** the score is at most the stored score, the search failed low */
+    public static final int UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_BYTES = 2 * ENTRY_BYTES;
+    /** a direct buffer is indexed by int, so tables stop at 1 GB */
+    private static final long MAX_BUCKETS = 1L << 25;
+
+    private final ByteBuffer buffer;
+    /** the number of buckets - 1, the number of buckets is a power of two */
+    private final long mask;
+    /** the current search, entries from older searches are replaced first */
+    private int generation;
+
+    /**
+     * Allocates a table
+     * @param megabytes the most memory to use, rounded down to a power of two, at most 1024
+     */
+    public TranspositionTable(int megabytes){
+        long buckets = Long.highestOneBit(Math.min(MAX_BUCKETS, Math.max(1L, (long) megabytes * 1024 * 1024 / BUCKET_BYTES)));
+        buffer = ByteBuffer.allocateDirect((int) (buckets * BUCKET_BYTES)).order(ByteOrder.nativeOrder());
+        mask = buckets - 1;
+    }
+
+    /**
+     * Looks up a position
+     * The data packs, from the low bits up: best move (16), score (16, signed), depth (8), bound (2) and generation (6)
+     * @param key the position's Zobrist key
+     * @return the data, MISS if the position is not stored
+     */
+    public long probe(long key){
+        int bucket = bucketOf(key);
+        for(int offset = bucket; offset < bucket + BUCKET_BYTES; offset += ENTRY_BYTES){
+            long data = buffer.getLong(offset + 8);
+            if(data != MISS && (buffer.getLong(offset) ^ data) == key){
+                return data;
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * Stores a search result
+     * The deep slot is replaced by results at least as deep or from a new search, anything else goes in the second slot
+     * @param key the position's Zobrist key
+     * @param move the best move, Moves.NO_MOVE if none is known
+     * @param score the score, mate scores relative to the position rather than the root
+     * @param depth the depth searched
+     * @param bound EXACT, LOWER or UPPER
+     */
+    public void store(long key, int move, int score, int depth, int bound){
+        int bucket = bucketOf(key);
+        long stored = buffer.getLong(bucket + 8);
+        long data = (move & 0xFFFFL) | (score & 0xFFFFL) << 16 | (long) depth << 32 | (long) bound << 40 | (long) generation << 42;
+
+        boolean sameKey = (buffer.getLong(bucket) ^ stored) == key;
+
+        if(sameKey || stored == MISS || depth(stored) <= depth || generation(stored) != generation){
+            // Keep a move the new result does not know
+            if(move == Moves.NO_MOVE && sameKey){
+                data |= stored & 0xFFFFL;
+            }
+            buffer.putLong(bucket, key ^ data);
+            buffer.putLong(bucket + 8, data);
+        }
+        else{
+            buffer.putLong(bucket + ENTRY_BYTES, key ^ data);
+            buffer.putLong(bucket + ENTRY_BYTES + 8, data);
+        }
+    }
+
+    /**
+     * Starts a new search, so entries of earlier searches give way to new ones
+     */
+    public void newSearch(){
+        generation = (generation + 1) & 63;
+    }
+
+    /**
+     * Empties the table
+     */
+    public void clear(){
+        for(int offset = 0; offset < buffer.capacity(); offset += 8){
+            buffer.putLong(offset, 0L);
+        }
+        generation = 0;
+    }
+
+    /**
+     * Estimates how full the table is from its first thousand entries
+     * @return the number of used entries per thousand
+     */
+    public int usedPerMille(){
+        int sample = Math.min(1000, buffer.capacity() / ENTRY_BYTES);
+        int used = 0;
+        for(int i = 0; i < sample; i++){
+            long data = buffer.getLong(i * ENTRY_BYTES + 8);
+            if(data != MISS && generation(data) == generation){
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    private int bucketOf(long key){
+        return (int) (key & mask) * BUCKET_BYTES;
+    }
+
+    public static int move(long data){
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data){
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data){
+        return (int) (data >>> 32 & 0xFF);
+    }
+
+    public static int bound(long data){
+        return (int) (data >>> 40 & 3);
+    }
+
+    private static int generation(long data){
+        return (int) (data >>> 42 & 63);
+    }
+}
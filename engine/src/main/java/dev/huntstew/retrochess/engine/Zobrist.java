@@ -0,0 +1,82 @@
+package dev.huntstew.retrochess.engine;
+
+/**
+ * Random 64-bit keys for Zobrist hashing of positions
+ * A position's key is the XOR of the keys of its pieces on their squares, the side to move, the castling rights and the en passant file
+ * The keys come from a fixed seed so hashes stay the same between runs, and can be stored in files such as opening books
+ */
+public final class Zobrist {
+    /** keys for each piece code on each square */
+    private static final long[][] PIECES = new long[Pieces.CODES][64];
+    /** keys for each combination of castling rights */
+    private static final long[] CASTLING = new long[16];
+    /** keys for the file of the en passant square */
+    private static final long[] EN_PASSANT = new long[8];
+    /** included when black is to move */
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        long seed = 0x52657472_6F436865L;
+        for(int color = Pieces.WHITE; color <= Pieces.BLACK; color++){
+            for(int kind = Pieces.PAWN; kind <= Pieces.KING; kind++){
+                for(int square = 0; square < 64; square++){
+                    seed += 0x9E3779B97F4A7C15L;
+                    PIECES[Pieces.make(color, kind)][square] = mix(seed);
+                }
+            }
+        }
+        // Castling keys are built from one key per right, so clearing a right is a single XOR like any other feature
+        long[] rights = new long[4];
+        for(int i = 0; i < rights.length; i++){
+            seed += 0x9E3779B97F4A7C15L;
+            rights[i] = mix(seed);
+        }
+        for(int mask = 0; mask < CASTLING.length; mask++){
+            for(int i = 0; i < rights.length; i++){
+                if((mask & 1 << i) != 0){
+                    CASTLING[mask] ^= rights[i];
+                }
+            }
+        }
+        for(int file = 0; file < EN_PASSANT.length; file++){
+            seed += 0x9E3779B97F4A7C15L;
+            EN_PASSANT[file] = mix(seed);
+        }
+        seed += 0x9E3779B97F4A7C15L;
+        BLACK_TO_MOVE = mix(seed);
+    }
+
+    private Zobrist(){}
+
+    /**
+     * SplitMix64 finaliser, turns a counter into well distributed bits
+     * @param z the counter
+     * @return the mixed value
+     */
+    private static long mix(long z){
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static long piece(int piece, int square){
+        return PIECES[piece][square];
+    }
+
+    public static long castling(int castlingRights){
+        return CASTLING[castlingRights];
+    }
+
+    /**
+     * Gets the key of an en passant square, only its file matters
+     * @param square the en passant square, or Position.NO_SQUARE
+     * @return the key, 0 when there is no en passant square
+     */
+    public static long enPassant(int square){
+        return square == Position.NO_SQUARE ? 0L : EN_PASSANT[square & 7];
+    }
+
+    public static long blackToMove(){
+        return BLACK_TO_MOVE;
+    }
+}
@@ -0,0 +1,39 @@
+package dev.huntstew.retrochess.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BitbasesTest {
+    @Test
+    public void probe_knowsBasicEndgames() {
+        // A king on the sixth in front of its pawn wins whoever is to move, a rook pawn with the defender in the corner never does
+        assertEquals(Bitbases.WIN, Bitbases.probe(Fen.parse("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1")));
+        assertEquals(Bitbases.LOSS, Bitbases.probe(Fen.parse("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1")));
+        assertEquals(Bitbases.DRAW, Bitbases.probe(Fen.parse("7k/8/8/8/8/8/7P/7K w - - 0 1")));
+        // Mirrored for black
+        assertEquals(Bitbases.WIN, Bitbases.probe(Fen.parse("8/8/8/8/4p3/4k3/8/4K3 b - - 0 1")));
+
+        // The only move takes the rook, and the queen has stalemated the king
+        assertEquals(Bitbases.DRAW, Bitbases.probe(Fen.parse("8/8/8/8/8/8/1R6/k6K b - - 0 1")));
+        assertEquals(Bitbases.DRAW, Bitbases.probe(Fen.parse("k7/8/1QK5/8/8/8/8/8 b - - 0 1")));
+        assertEquals(Bitbases.LOSS, Bitbases.probe(Fen.parse("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1")));
+        assertEquals(Bitbases.WIN, Bitbases.probe(Fen.parse("8/8/8/3k4/8/8/8/R3K3 w - - 0 1")));
+
+        assertEquals(Bitbases.UNKNOWN, Bitbases.probe(Fen.parse("4k3/8/8/8/8/8/8/1N2K3 w - - 0 1")));
+        assertEquals(Bitbases.UNKNOWN, Bitbases.probe(Position.startingPosition()));
+    }
+
+    @Test
+    public void generate_readiesProbesForSearch() {
+        Bitbases.generate();
+        assertTrue(Bitbases.isReady());
+    }
+
+    @Test
+    public void adjudicate_endsKnownEndgames() {
+        MoveGenerator generator = new MoveGenerator();
+        assertEquals(Outcome.BLACK_WINS, Rules.adjudicate(Fen.parse("8/8/8/3k4/8/8/2q5/4K3 w - - 0 1"), generator));
+        assertEquals(Outcome.DRAWN_ENDGAME, Rules.adjudicate(Fen.parse("7k/8/8/8/8/8/7P/7K w - - 0 1"), generator));
+    }
+}
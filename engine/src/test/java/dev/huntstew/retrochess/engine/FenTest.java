@@ -0,0 +1,64 @@
+package dev.huntstew.retrochess.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FenTest {
+    @Test
+    public void format_writesBackParsedPosition() {
+        String[] fens = {
+                Fen.STARTING_POSITION,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - - 17 42",
+        };
+        for(String fen : fens){
+            assertEquals(fen, Fen.format(Fen.parse(fen)));
+        }
+    }
+
+    @Test
+    public void parse_matchesPositionReachedByMoves() {
+        Position played = Position.startingPosition();
+        played.makeMove(Moves.make(12, 28, Moves.NORMAL));
+        Position parsed = Fen.parse("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+
+        // e3 is dropped as no black pawn can take on it, just as makeMove never sets it
+        assertEquals(Position.NO_SQUARE, parsed.getEnPassantSquare());
+        assertEquals(played.getKey(), parsed.getKey());
+        assertEquals(Fen.format(played), Fen.format(parsed));
+    }
+
+    @Test
+    public void parse_dropsCastlingWithoutKingAndRookAtHome() {
+        MoveGenerator generator = new MoveGenerator();
+        MoveList moves = new MoveList();
+
+        // The king is off e1, so no castle from d1 either
+        Position position = Fen.parse("4k3/8/8/8/8/8/8/3K4 w K - 0 1");
+        assertEquals(0, position.getCastlingRights());
+        int count = generator.generate(position, Pieces.WHITE, moves);
+        for(int i = 0; i < count; i++){
+            assertNotEquals(Moves.CASTLE, Moves.flag(moves.get(i)));
+        }
+
+        // No rook on h1, and only the queenside rook of the two
+        assertEquals(0, Fen.parse("4k3/8/8/8/8/8/8/4K3 w K - 0 1").getCastlingRights());
+        position = Fen.parse("4k3/8/8/8/8/8/8/R3K3 w KQ - 0 1");
+        assertEquals(Position.WHITE_QUEENSIDE, position.getCastlingRights());
+        assertEquals("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1", Fen.format(position));
+        assertEquals(0, Fen.parse("r3k3/8/8/8/8/8/8/4K3 b kq - 0 1").getCastlingRights() & Position.BLACK_KINGSIDE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsEnPassantSquareOfTheSideToMove() {
+        // e3 is only skipped by a white pawn, so it can not be taken with white to move
+        Fen.parse("4k3/8/8/8/3pP3/8/8/4K3 w - e3 0 1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsMissingRank() {
+        Fen.parse("rnbqkbnr/pppppppp/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+    }
+}
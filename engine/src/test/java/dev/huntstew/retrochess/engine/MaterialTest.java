@@ -0,0 +1,50 @@
+package dev.huntstew.retrochess.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MaterialTest {
+    @Test
+    public void getMaterial_followsCapturesAndPromotions() {
+        MoveGenerator generator = new MoveGenerator();
+        MoveList moves = new MoveList();
+        Random random = new Random(7);
+        for(int game = 0; game < 20; game++){
+            Position position = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+            int made = 0;
+            for(int ply = 0; ply < 200; ply++){
+                int count = generator.generate(position, position.getSideToMove(), moves);
+                if(count == 0){
+                    break;
+                }
+                position.makeMove(moves.get(random.nextInt(count)));
+                made++;
+                assertEquals(Material.of(position), position.getMaterial());
+            }
+            for(; made > 0; made--){
+                position.unmakeMove();
+                assertEquals(Material.of(position), position.getMaterial());
+            }
+        }
+    }
+
+    @Test
+    public void isInsufficient_findsDeadMaterial() {
+        assertTrue(Material.isInsufficient(Material.parse("KK")));
+        assertTrue(Material.isInsufficient(Material.parse("KNK")));
+        assertTrue(Material.isInsufficient(Material.parse("KBKN")));
+        assertTrue(Material.isInsufficient(Material.parse("KBBKB")));
+        assertFalse(Material.isInsufficient(Material.parse("KBKd")));
+        assertFalse(Material.isInsufficient(Material.parse("KNNK")));
+        assertFalse(Material.isInsufficient(Material.parse("KBdK")));
+        assertFalse(Material.isInsufficient(Material.parse("KPK")));
+        assertFalse(Material.isInsufficient(Material.parse("KKR")));
+
+        Position position = Fen.parse("8/8/4k3/8/2B5/8/3K4/5B2 w - - 0 1");
+        assertEquals(Material.parse("KBBK"), position.getMaterial());
+        assertTrue(Rules.isUnwinnable(position));
+    }
+}
@@ -0,0 +1,92 @@
+package dev.huntstew.retrochess.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Perft counts for the legal move generator, compared against well known results
+ */
+public class MoveGeneratorTest {
+    @Test
+    public void perft_startingPosition() {
+        Position position = Position.startingPosition();
+        assertEquals(20, perft(position, 1));
+        assertEquals(400, perft(position, 2));
+        assertEquals(8902, perft(position, 3));
+        assertEquals(197281, perft(position, 4));
+    }
+
+    @Test
+    public void perft_enPassantDiscoveredCheck() {
+        // 3k4/3p4/8/K1P4r/8/8/8/8 b - -, after d7d5 the c5 pawn may not take en passant
+        Position position = new Position();
+        position.put(Bitboards.square(3, 7), Pieces.make(Pieces.BLACK, Pieces.KING));
+        position.put(Bitboards.square(3, 6), Pieces.make(Pieces.BLACK, Pieces.PAWN));
+        position.put(Bitboards.square(0, 4), Pieces.make(Pieces.WHITE, Pieces.KING));
+        position.put(Bitboards.square(2, 4), Pieces.make(Pieces.WHITE, Pieces.PAWN));
+        position.put(Bitboards.square(7, 4), Pieces.make(Pieces.BLACK, Pieces.ROOK));
+        position.setSideToMove(Pieces.BLACK);
+        assertEquals(1134888, perft(position, 6));
+    }
+
+    @Test
+    public void perft_castlingGivesCheck() {
+        // 5k2/8/8/8/8/8/8/4K2R w K -
+        Position position = new Position();
+        position.put(Bitboards.square(5, 7), Pieces.make(Pieces.BLACK, Pieces.KING));
+        position.put(Bitboards.square(4, 0), Pieces.make(Pieces.WHITE, Pieces.KING));
+        position.put(Bitboards.square(7, 0), Pieces.make(Pieces.WHITE, Pieces.ROOK));
+        position.setCastlingRights(Position.WHITE_KINGSIDE);
+        assertEquals(661072, perft(position, 6));
+    }
+
+    @Test
+    public void hasAnyLegalMove_agreesWithGenerate() {
+        String[] fens = {
+                Fen.STARTING_POSITION,
+                // Mate, stalemate and a check only the king can answer
+                "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3",
+                "7k/5Q2/6K1/8/8/8/8/8 b - - 0 1",
+                "4k3/8/8/8/8/8/3P1P2/r3K3 w - - 0 1",
+        };
+        MoveGenerator generator = new MoveGenerator();
+        MoveList moves = new MoveList();
+        for(String fen : fens){
+            Position position = Fen.parse(fen);
+            int count = generator.generate(position, position.getSideToMove(), moves);
+            assertEquals(fen, count > 0, generator.hasAnyLegalMove(position, position.getSideToMove()));
+        }
+    }
+
+    @Test
+    public void parse_findsOnlyLegalMoves() {
+        Position position = Fen.parse("4k3/1P6/8/8/8/8/8/4K2R w K - 0 1");
+        assertEquals(Moves.CASTLE, Moves.flag(Moves.parse(position, "e1g1")));
+        assertEquals(Pieces.KNIGHT, Moves.promotionKind(Moves.parse(position, "b7b8n")));
+        // A promotion needs its piece, and black's king can not be moved by white
+        assertEquals(Moves.NO_MOVE, Moves.parse(position, "b7b8"));
+        assertEquals(Moves.NO_MOVE, Moves.parse(position, "e8d8"));
+        assertEquals(Moves.NO_MOVE, Moves.parse(position, "e1e9"));
+    }
+
+    private static long perft(Position position, int depth){
+        return perft(position, depth, new MoveGenerator(), MoveList.perPly(depth));
+    }
+
+    private static long perft(Position position, int depth, MoveGenerator generator, MoveList[] lists){
+        MoveList moves = lists[depth - 1];
+        int count = generator.generate(position, position.getSideToMove(), moves);
+        if(depth == 1){
+            return count;
+        }
+
+        long nodes = 0;
+        for(int i = 0; i < count; i++){
+            position.makeMove(moves.get(i));
+            nodes += perft(position, depth - 1, generator, lists);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+}
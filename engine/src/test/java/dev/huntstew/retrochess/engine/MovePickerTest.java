@@ -0,0 +1,31 @@
+package dev.huntstew.retrochess.engine;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MovePickerTest {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test
+    public void next_handsOutEveryLegalMoveOnce() {
+        Position position = Fen.parse(KIWIPETE);
+        MoveList legal = new MoveList();
+        int count = new MoveGenerator().generate(position, position.getSideToMove(), legal);
+
+        // A killer that is a capture here is tried with the captures, not twice
+        MovePicker picker = new MovePicker(new StaticExchange());
+        picker.init(position, Moves.parse(position, "e2a6"), Moves.parse(position, "e5f7"), Moves.parse(position, "a2a3"), new int[4096]);
+        Set<Integer> picked = new HashSet<>();
+        for(int move = picker.next(); move != Moves.NO_MOVE; move = picker.next()){
+            assertTrue(Moves.toString(move), picked.add(move));
+        }
+        assertEquals(count, picked.size());
+        for(int i = 0; i < count; i++){
+            assertTrue(picked.contains(legal.get(i)));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package dev.huntstew.retrochess.engine;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class OpeningBookTest {
+    private static final String GAMES =
+            "1. e4 e5 2. Nf3 Nc6 3. Bc4 Nf6 4. O-O 1-0\n\n"
+            + "1. e4 c5 2. Nf3 d6 1/2-1/2\n\n"
+            + "1. d4 d5 2. c4 0-1\n\n"
+            + "1. e4 e5 2. Nf3 Nf6 1-0\n";
+
+    @Test
+    public void probe_findsWeightedMovesOfBookPositions() throws IOException {
+        OpeningBook book = OpeningBook.open(writeBook());
+        MoveList moves = new MoveList();
+        int[] weights = new int[MoveList.CAPACITY];
+        Position position = Position.startingPosition();
+
+        // e4 won twice and drew once, d4 lost, heaviest first
+        assertEquals(2, book.probe(position, moves, weights));
+        assertEquals("e2e4", Moves.toString(moves.get(0)));
+        assertEquals(5, weights[0]);
+        assertEquals("d2d4", Moves.toString(moves.get(1)));
+        assertEquals(0, weights[1]);
+        // A move of weight 0 is never picked
+        Random random = new Random(1);
+        for(int i = 0; i < 20; i++){
+            assertEquals(moves.get(0), book.pick(position, random));
+        }
+
+        // Castling is stored as the king taking its rook and comes back as a castling move
+        for(String move : new String[]{"e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "g8f6"}){
+            position.makeMove(Moves.parse(position, move));
+        }
+        assertEquals(1, book.probe(position, moves, weights));
+        assertEquals(Moves.CASTLE, Moves.flag(moves.get(0)));
+        assertEquals("e1g1", Moves.toString(moves.get(0)));
+
+        position.makeMove(moves.get(0));
+        assertEquals(0, book.probe(position, moves, weights));
+        assertEquals(Moves.NO_MOVE, book.pick(position, new Random(1)));
+    }
+
+    private static Path writeBook() throws IOException {
+        PgnReader reader = new PgnReader(Channels.newChannel(new ByteArrayInputStream(GAMES.getBytes(StandardCharsets.US_ASCII))));
+        PgnGame game = new PgnGame();
+        OpeningBookWriter writer = new OpeningBookWriter();
+        while(reader.next(game)){
+            writer.addGame(game, 16);
+        }
+        Path path = Files.createTempFile("book", ".bin");
+        path.toFile().deleteOnExit();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            // The same move from the same position in two games is one entry
+            assertEquals(14, writer.write(channel));
+        }
+        return path;
+    }
+}
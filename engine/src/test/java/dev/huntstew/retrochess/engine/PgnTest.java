@@ -0,0 +1,128 @@
+package dev.huntstew.retrochess.engine;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class PgnTest {
+    private static final String GAMES =
+            "[Event \"Test \\\"Open\\\"\"]\n"
+            + "[White \"R\u00e9ti, Richard\"]\n"
+            + "[Result \"1-0\"]\n"
+            + "\n"
+            + "1. e4 {King's pawn} e5 2. Nf3 (2. f4 exf4 (2... d5) 3. Nf3) Nc6 3. Bb5 a6 $1 4. Ba4 Nf6\n"
+            + "5. O-O Be7 6. Re1 b5 7. Bb3 d6 8. c3 O-O 9. h3 Nb8 10. d4 Nbd7 11. Nbd2 Bb7 12. Bc2 Re8\n"
+            + "13. a4 ; rest of line\n"
+            + "Bf8 14. Bd3 c6 15. b4 1-0\n"
+            + "\n"
+            + "[FEN \"4k3/1P6/8/8/8/8/8/4K2R w K - 0 1\"]\n"
+            + "[SetUp \"1\"]\n"
+            + "\n"
+            + "1. b8=Q+ Kd7 2. 0-0 *\n";
+
+    @Test
+    public void next_readsMovesSkippingCommentsAndVariations() throws IOException {
+        PgnReader reader = reader(GAMES);
+        PgnGame game = new PgnGame();
+
+        assertTrue(reader.next(game));
+        assertTrue(game.getError(), game.isValid());
+        assertEquals("Test \"Open\"", game.getTag("Event"));
+        assertEquals("R\u00e9ti, Richard", game.getTag("White"));
+        assertEquals("1-0", game.getResult());
+        assertEquals(29, game.getMoveCount());
+        assertEquals("r2qrbk1/1b1n1ppp/p1pp1n2/1p2p3/PP1PP3/2PB1N1P/3N1PP1/R1BQR1K1 b - - 0 15", Fen.format(reader.getPosition()));
+
+        assertTrue(reader.next(game));
+        assertTrue(game.getError(), game.isValid());
+        assertEquals(3, game.getMoveCount());
+        assertEquals(Moves.CASTLE, Moves.flag(game.getMove(2)));
+        assertEquals("1Q6/3k4/8/8/8/8/8/5RK1 b - - 2 2", Fen.format(reader.getPosition()));
+
+        assertFalse(reader.next(game));
+    }
+
+    @Test
+    public void next_marksIllegalMoveInvalid() throws IOException {
+        PgnReader reader = reader("1. e4 e5 2. Ke3 Nc6 1/2-1/2\n1. d4 *");
+        PgnGame game = new PgnGame();
+
+        assertTrue(reader.next(game));
+        assertFalse(game.isValid());
+        assertEquals(2, game.getMoveCount());
+        assertEquals("1/2-1/2", game.getResult());
+
+        // The next game is still read
+        assertTrue(reader.next(game));
+        assertTrue(game.isValid());
+        assertEquals(1, game.getMoveCount());
+    }
+
+    @Test
+    public void next_marksBadFenTagInvalid() throws IOException {
+        PgnReader reader = reader("[FEN \"garbage\"]\n\n1. e4 e5 *\n\n1. d4 d5 2. c4 0-1\n");
+        PgnGame game = new PgnGame();
+
+        assertTrue(reader.next(game));
+        assertFalse(game.isValid());
+        assertNotNull(game.getError());
+        assertEquals(0, game.getMoveCount());
+
+        assertTrue(reader.next(game));
+        assertTrue(game.getError(), game.isValid());
+        assertEquals(3, game.getMoveCount());
+        assertEquals("rnbqkbnr/ppp1pppp/8/3p4/2PP4/8/PP2PPPP/RNBQKBNR b KQkq - 0 2", Fen.format(reader.getPosition()));
+    }
+
+    @Test
+    public void write_readsBackTheSameGames() throws IOException {
+        PgnReader reader = reader(GAMES);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PgnWriter writer = new PgnWriter(Channels.newChannel(out));
+        PgnGame game = new PgnGame();
+        while(reader.next(game)){
+            writer.write(game);
+        }
+        writer.flush();
+
+        PgnReader original = reader(GAMES);
+        PgnReader written = reader(out.toString(StandardCharsets.UTF_8));
+        PgnGame expected = new PgnGame();
+        while(original.next(expected)){
+            assertTrue(written.next(game));
+            assertTrue(game.getError(), game.isValid());
+            for(String name : expected.getTags().keySet()){
+                assertEquals(expected.getTag(name), game.getTag(name));
+            }
+            assertEquals(expected.getMoveCount(), game.getMoveCount());
+            for(int i = 0; i < expected.getMoveCount(); i++){
+                assertEquals(expected.getMove(i), game.getMove(i));
+            }
+            assertEquals(Fen.format(original.getPosition()), Fen.format(written.getPosition()));
+        }
+        assertFalse(written.next(game));
+    }
+
+    @Test
+    public void format_disambiguatesOnlyAsMuchAsNeeded() {
+        San san = new San();
+        Position position = Fen.parse("4k3/8/8/8/8/8/6K1/R6R w - - 0 1");
+        assertEquals("Rad1", san.format(position, san.parse(position, "Rad1")));
+        assertEquals(Moves.NO_MOVE, san.parse(position, "Rb1"));
+
+        position = Fen.parse("4k3/8/8/R7/8/8/8/R3K3 w - - 0 1");
+        assertEquals("R5a3", san.format(position, san.parse(position, "R5a3")));
+        assertEquals(Moves.NO_MOVE, san.parse(position, "Ra3"));
+        assertEquals("Ra8+", san.format(position, san.parse(position, "Ra8")));
+    }
+
+    private static PgnReader reader(String text){
+        return new PgnReader(Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+    }
+}
@@ -0,0 +1,60 @@
+package dev.huntstew.retrochess.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PositionTest {
+    private static final int B1 = 1;
+    private static final int G1 = 6;
+    private static final int C3 = 18;
+    private static final int F3 = 21;
+    private static final int B8 = 57;
+    private static final int G8 = 62;
+    private static final int C6 = 42;
+    private static final int F6 = 45;
+    private static final int E2 = 12;
+    private static final int E4 = 28;
+
+    @Test
+    public void unmakeMove_restoresKey() {
+        Position position = Position.startingPosition();
+        long key = position.getKey();
+        position.makeMove(G1, F3, Pieces.NONE);
+        assertNotEquals(key, position.getKey());
+        position.unmakeMove();
+        assertEquals(key, position.getKey());
+    }
+
+    @Test
+    public void key_isSameForTranspositions() {
+        Position first = Position.startingPosition();
+        first.makeMove(G1, F3, Pieces.NONE);
+        first.makeMove(G8, F6, Pieces.NONE);
+        first.makeMove(B1, C3, Pieces.NONE);
+
+        Position second = Position.startingPosition();
+        second.makeMove(B1, C3, Pieces.NONE);
+        second.makeMove(G8, F6, Pieces.NONE);
+        second.makeMove(G1, F3, Pieces.NONE);
+
+        assertEquals(first.getKey(), second.getKey());
+    }
+
+    @Test
+    public void repetitionCount_countsKnightShuffles() {
+        Position position = Position.startingPosition();
+        for(int i = 0; i < 2; i++){
+            assertEquals(i, position.repetitionCount());
+            position.makeMove(G1, F3, Pieces.NONE);
+            position.makeMove(B8, C6, Pieces.NONE);
+            position.makeMove(F3, G1, Pieces.NONE);
+            position.makeMove(C6, B8, Pieces.NONE);
+        }
+        assertEquals(2, position.repetitionCount());
+
+        // A pawn move is irreversible, so nothing before it can repeat
+        position.makeMove(E2, E4, Pieces.NONE);
+        assertEquals(0, position.repetitionCount());
+    }
+}
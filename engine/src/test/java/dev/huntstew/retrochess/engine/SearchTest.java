@@ -0,0 +1,78 @@
+package dev.huntstew.retrochess.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SearchTest {
+    @Test
+    public void search_findsBackRankMate() {
+        Position position = backRankMate();
+        long key = position.getKey();
+
+        Search search = new Search();
+        int move = search.search(position, 4, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        assertEquals(Moves.make(Bitboards.square(0, 0), Bitboards.square(0, 7), Moves.NORMAL), move);
+        assertEquals(Search.MATE - 1, search.getScore());
+        assertEquals(key, position.getKey());
+    }
+
+    @Test
+    public void parallelSearch_findsBackRankMate() {
+        ParallelSearch search = new ParallelSearch(4, 1);
+        int move = search.search(backRankMate(), 4, Long.MAX_VALUE, Long.MAX_VALUE);
+        search.shutdown();
+
+        assertEquals(Moves.make(Bitboards.square(0, 0), Bitboards.square(0, 7), Moves.NORMAL), move);
+        assertEquals(Search.MATE - 1, search.getMain().getScore());
+    }
+
+    @Test
+    public void search_stopsAtNodeLimit() {
+        Search search = new Search();
+        int move = search.search(Position.startingPosition(), Search.MAX_PLY, 5000, Long.MAX_VALUE);
+
+        assertNotEquals(Moves.NO_MOVE, move);
+        assertTrue(search.getNodes() <= 5000);
+    }
+
+    @Test
+    public void search_limitOnlyStopsItsOwnSearch() {
+        Search search = new Search();
+        search.search(Position.startingPosition(), Search.MAX_PLY, 5000, Long.MAX_VALUE);
+        search.search(Position.startingPosition(), Search.MAX_PLY, 5000, Long.MAX_VALUE);
+        assertTrue(search.getDepth() > 1);
+
+        ParallelSearch parallel = new ParallelSearch(2, 1);
+        parallel.search(Position.startingPosition(), Search.MAX_PLY, Long.MAX_VALUE, 100);
+        parallel.search(Position.startingPosition(), Search.MAX_PLY, Long.MAX_VALUE, 100);
+        parallel.shutdown();
+        assertTrue(parallel.getMain().getDepth() > 1);
+    }
+
+    @Test
+    public void search_stopBeforeStartIsKept() {
+        Search search = new Search();
+        search.stop();
+        assertNotEquals(Moves.NO_MOVE, search.search(Position.startingPosition(), Search.MAX_PLY, Long.MAX_VALUE, Long.MAX_VALUE));
+        assertTrue(search.getNodes() <= 1);
+
+        search.clearStop();
+        search.search(Position.startingPosition(), 3, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertEquals(3, search.getDepth());
+    }
+
+    private static Position backRankMate(){
+        // 6k1/5ppp/8/8/8/8/5PPP/R5K1 w - -
+        Position position = new Position();
+        position.put(Bitboards.square(6, 7), Pieces.make(Pieces.BLACK, Pieces.KING));
+        for(int file = 5; file < 8; file++){
+            position.put(Bitboards.square(file, 6), Pieces.make(Pieces.BLACK, Pieces.PAWN));
+            position.put(Bitboards.square(file, 1), Pieces.make(Pieces.WHITE, Pieces.PAWN));
+        }
+        position.put(Bitboards.square(0, 0), Pieces.make(Pieces.WHITE, Pieces.ROOK));
+        position.put(Bitboards.square(6, 0), Pieces.make(Pieces.WHITE, Pieces.KING));
+        return position;
+    }
+}
@@ -0,0 +1,36 @@
+package dev.huntstew.retrochess.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StaticExchangeTest {
+    private final StaticExchange exchange = new StaticExchange();
+
+    @Test
+    public void evaluate_winsUndefendedPiece() {
+        Position position = Fen.parse("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1");
+        assertEquals(100, exchange.evaluate(position, Moves.parse(position, "e1e5")));
+    }
+
+    @Test
+    public void evaluate_losesPieceTakenByDefender() {
+        // The queen takes a pawn and a pawn takes the queen
+        Position position = Fen.parse("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1");
+        assertEquals(-800, exchange.evaluate(position, Moves.parse(position, "d1d5")));
+    }
+
+    @Test
+    public void evaluate_countsDefenderBehindDefender() {
+        // The queen on a8 only defends d5 once the bishop in front of it has taken, so knight and rook are lost for bishop and pawn
+        Position position = Fen.parse("q5k1/1b6/8/3p4/8/2N5/8/3R2K1 w - - 0 1");
+        assertEquals(-220, exchange.evaluate(position, Moves.parse(position, "c3d5")));
+    }
+
+    @Test
+    public void evaluate_tradesOffEveryAttacker() {
+        // Knight for pawn, then the queen behind the rook and the queen behind the bishop join in, and white stops a capture early
+        Position position = Fen.parse("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1");
+        assertEquals(-220, exchange.evaluate(position, Moves.parse(position, "d3e5")));
+    }
+}
@@ -0,0 +1,43 @@
+package dev.huntstew.retrochess.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableTest {
+    @Test
+    public void probe_returnsStoredEntry() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Moves.make(12, 28, Moves.NORMAL);
+        table.store(0x1234L, move, -250, 7, TranspositionTable.LOWER);
+
+        long entry = table.probe(0x1234L);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-250, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(TranspositionTable.MISS, table.probe(0x5678L));
+    }
+
+    @Test
+    public void store_keepsDeepEntryAndReplacesShallowSlot() {
+        TranspositionTable table = new TranspositionTable(1);
+        // Keys with the same low bits share a bucket
+        long deep = 1L << 40;
+        long first = 2L << 40;
+        long second = 3L << 40;
+        table.store(deep, Moves.NO_MOVE, 10, 9, TranspositionTable.EXACT);
+        table.store(first, Moves.NO_MOVE, 20, 2, TranspositionTable.EXACT);
+        table.store(second, Moves.NO_MOVE, 30, 3, TranspositionTable.EXACT);
+
+        assertEquals(9, TranspositionTable.depth(table.probe(deep)));
+        assertEquals(TranspositionTable.MISS, table.probe(first));
+        assertEquals(3, TranspositionTable.depth(table.probe(second)));
+
+        // Entries of an older search give way
+        table.newSearch();
+        table.store(first, Moves.NO_MOVE, 20, 2, TranspositionTable.EXACT);
+        assertEquals(TranspositionTable.MISS, table.probe(deep));
+        assertEquals(2, TranspositionTable.depth(table.probe(first)));
+    }
+}
@@ -0,0 +1,133 @@
+package dev.huntstew.retrochess.selfplay;
+
+import java.nio.ByteBuffer;
+
+import dev.huntstew.retrochess.engine.Outcome;
+import dev.huntstew.retrochess.engine.Position;
+
+/**
+ * The binary format of the self-play dataset, a file of fixed size records, one per searched position
+ * Each record is RECORD_BYTES long, big endian:
+ * <pre>
+ *  0  long   occupied squares, bit 0 for A1 through bit 63 for H8
+ *  8  16     a 4 bit piece code (color &lt;&lt; 3 | kind) for each occupied square from A1 up, high nibble first
+ * 24  byte   side to move in bit 0, castling rights above it
+ * 25  byte   en passant square, -1 for none
+ * 26  byte   halfmove clock
+ * 27  byte   result of the game from white's point of view, WHITE_WIN, DRAW or BLACK_WIN
+ * 28  short  search score in centipawns from the side to move's point of view
+ * 30  short  fullmove number
+ * </pre>
+ * Fixed size records let a tuner seek straight to any position or split the file between threads
+ */
+public final class Dataset {
+    public static final int RECORD_BYTES = 32;
+
+    public static final byte BLACK_WIN = 0;
+    public static final byte DRAW = 1;
+    public static final byte WHITE_WIN = 2;
+
+    private static final int PIECES_OFFSET = 8;
+    private static final int STATE_OFFSET = 24;
+    private static final int EN_PASSANT_OFFSET = 25;
+    private static final int HALFMOVE_OFFSET = 26;
+    private static final int RESULT_OFFSET = 27;
+    private static final int SCORE_OFFSET = 28;
+    private static final int FULLMOVE_OFFSET = 30;
+
+    private Dataset(){}
+
+    /**
+     * Appends a record for a position, with the result left as a draw until the game ends
+     * @param position the position
+     * @param score the search score of the position
+     * @param buffer where to put the record, at its position
+     */
+    public static void encode(Position position, int score, ByteBuffer buffer){
+        int start = buffer.position();
+        long occupied = position.occupied();
+        buffer.putLong(occupied);
+
+        // Pairs of pieces fill a byte each, a legal position has at most 32 pieces
+        int packed = 0;
+        int count = 0;
+        for(long squares = occupied; squares != 0 && count < 32; squares &= squares - 1){
+            packed = packed << 4 | position.pieceAt(Long.numberOfTrailingZeros(squares));
+            if(++count % 2 == 0){
+                buffer.put((byte) packed);
+                packed = 0;
+            }
+        }
+        if(count % 2 != 0){
+            buffer.put((byte) (packed << 4));
+            count++;
+        }
+        for(; count < 32; count += 2){
+            buffer.put((byte) 0);
+        }
+
+        buffer.put((byte) (position.getSideToMove() | position.getCastlingRights() << 1));
+        buffer.put((byte) position.getEnPassantSquare());
+        buffer.put((byte) Math.min(position.getHalfmoveClock(), Byte.MAX_VALUE));
+        buffer.put(DRAW);
+        buffer.putShort((short) score);
+        buffer.putShort((short) Math.min(position.getFullmoveNumber(), Short.MAX_VALUE));
+        assert buffer.position() - start == RECORD_BYTES;
+    }
+
+    /**
+     * Reads the position of a record
+     * @param buffer the dataset
+     * @param record the index of the record
+     * @param position where to load the position, cleared first, it has no move history
+     */
+    public static void decode(ByteBuffer buffer, int record, Position position){
+        int start = record * RECORD_BYTES;
+        position.clear();
+        long occupied = buffer.getLong(start);
+        int index = 0;
+        for(long squares = occupied; squares != 0; squares &= squares - 1, index++){
+            int packed = buffer.get(start + PIECES_OFFSET + index / 2);
+            int piece = index % 2 == 0 ? packed >> 4 & 0xF : packed & 0xF;
+            position.put(Long.numberOfTrailingZeros(squares), piece);
+        }
+        int state = buffer.get(start + STATE_OFFSET);
+        position.setSideToMove(state & 1);
+        position.setCastlingRights(state >> 1 & 0xF);
+        position.setEnPassantSquare(buffer.get(start + EN_PASSANT_OFFSET));
+        position.setHalfmoveClock(buffer.get(start + HALFMOVE_OFFSET));
+        position.setFullmoveNumber(buffer.getShort(start + FULLMOVE_OFFSET));
+    }
+
+    /**
+     * Gets the result of the game a record came from
+     * @param buffer the dataset
+     * @param record the index of the record
+     * @return WHITE_WIN, DRAW or BLACK_WIN
+     */
+    public static byte result(ByteBuffer buffer, int record){
+        return buffer.get(record * RECORD_BYTES + RESULT_OFFSET);
+    }
+
+    /**
+     * Gets the search score of a record
+     * @param buffer the dataset
+     * @param record the index of the record
+     * @return the score in centipawns from the side to move's point of view
+     */
+    public static int score(ByteBuffer buffer, int record){
+        return buffer.getShort(record * RECORD_BYTES + SCORE_OFFSET);
+    }
+
+    /**
+     * Fills in the result of every record of a game, once it is known
+     * @param buffer the records of one game, from 0 to its position
+     * @param outcome how the game ended
+     */
+    static void setResult(ByteBuffer buffer, Outcome outcome){
+        byte result = outcome == Outcome.WHITE_WINS ? WHITE_WIN : outcome == Outcome.BLACK_WINS ? BLACK_WIN : DRAW;
+        for(int offset = RESULT_OFFSET; offset < buffer.position(); offset += RECORD_BYTES){
+            buffer.put(offset, result);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package dev.huntstew.retrochess.selfplay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the records of finished games from every worker into one buffer of fixed size and writes it to a channel
+ * The buffer is written out whenever it fills and at least every flush interval, so a run that is killed loses little
+ * A game is always written whole, so the file never holds part of a game
+ */
+public final class DatasetWriter implements AutoCloseable {
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final long flushNanos;
+    private long lastFlush = System.nanoTime();
+    private long records;
+
+    /**
+     * Creates a writer
+     * @param channel where to write the dataset, closed with the writer
+     * @param bufferBytes the size of the buffer, at least the records of the longest game
+     * @param flushMillis the longest time records are held in the buffer before being written, checked as games are added
+     */
+    public DatasetWriter(WritableByteChannel channel, int bufferBytes, long flushMillis){
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferBytes - bufferBytes % Dataset.RECORD_BYTES);
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+    }
+
+    /**
+     * Adds the records of a game, safe to call from any thread
+     * @param game the records, from 0 to its position, left as it was
+     * @throws IOException if the channel can not be written
+     */
+    public synchronized void write(ByteBuffer game) throws IOException {
+        ByteBuffer records = game.duplicate();
+        records.flip();
+        if(records.remaining() > buffer.remaining()){
+            flush();
+        }
+        this.records += records.remaining() / Dataset.RECORD_BYTES;
+        buffer.put(records);
+        if(System.nanoTime() - lastFlush >= flushNanos){
+            flush();
+        }
+    }
+
+    /**
+     * Writes everything in the buffer to the channel
+     * @throws IOException if the channel can not be written
+     */
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+        lastFlush = System.nanoTime();
+    }
+
+    /**
+     * Gets the number of records added so far
+     * @return the number of positions
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
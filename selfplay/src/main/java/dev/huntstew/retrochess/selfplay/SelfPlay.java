@@ -0,0 +1,264 @@
+package dev.huntstew.retrochess.selfplay;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dev.huntstew.retrochess.engine.Bitbases;
+import dev.huntstew.retrochess.engine.Fen;
+import dev.huntstew.retrochess.engine.MoveGenerator;
+import dev.huntstew.retrochess.engine.MoveList;
+import dev.huntstew.retrochess.engine.Outcome;
+import dev.huntstew.retrochess.engine.Position;
+import dev.huntstew.retrochess.engine.Rules;
+import dev.huntstew.retrochess.engine.Search;
+import dev.huntstew.retrochess.engine.TranspositionTable;
+
+/**
+ * Plays engine-vs-engine games with no UI and writes every searched position to a Dataset file
+ * Each worker thread plays whole games with its own Search, table and position, so games share nothing while running
+ * Games are numbered and game n always opens with the same random moves, so a run gives the same games on any number of threads
+ */
+public final class SelfPlay {
+    /** games still going after this many plies are stopped and scored as draws */
+    static final int MAX_PLIES = 600;
+    /** how often the progress line is printed */
+    private static final int REPORT_EVERY = 100;
+
+    private int games = 1000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int depth = 6;
+    private long nodes = Long.MAX_VALUE;
+    private int hashMegabytes = 8;
+    /** random legal moves played at the start of each game, so the games differ */
+    private int randomPlies = 8;
+    private long seed = 1;
+    private int bufferBytes = 1 << 20;
+    private long flushMillis = 5000;
+    private Path output = Paths.get("selfplay.bin");
+    private PrintStream log = System.err;
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private final AtomicInteger finished = new AtomicInteger();
+    private final AtomicInteger[] outcomes = new AtomicInteger[Outcome.values().length];
+    private long startTime;
+
+    public SelfPlay(){
+        for(int i = 0; i < outcomes.length; i++){
+            outcomes[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Runs self-play from the command line
+     * Options are --games, --threads, --depth, --nodes, --hash (megabytes per thread), --random-plies, --seed, --flush-millis and --output
+     * @param args the options, each followed by its value
+     * @throws Exception if the run fails
+     */
+    public static void main(String[] args) throws Exception {
+        SelfPlay selfPlay = new SelfPlay();
+        for(int i = 0; i + 1 < args.length; i += 2){
+            String value = args[i + 1];
+            switch(args[i]){
+                case "--games":
+                    selfPlay.setGames(Integer.parseInt(value));
+                    break;
+                case "--threads":
+                    selfPlay.setThreads(Integer.parseInt(value));
+                    break;
+                case "--depth":
+                    selfPlay.setDepth(Integer.parseInt(value));
+                    break;
+                case "--nodes":
+                    selfPlay.setNodes(Long.parseLong(value));
+                    break;
+                case "--hash":
+                    selfPlay.setHashMegabytes(Integer.parseInt(value));
+                    break;
+                case "--random-plies":
+                    selfPlay.setRandomPlies(Integer.parseInt(value));
+                    break;
+                case "--seed":
+                    selfPlay.setSeed(Long.parseLong(value));
+                    break;
+                case "--flush-millis":
+                    selfPlay.setFlushMillis(Long.parseLong(value));
+                    break;
+                case "--output":
+                    selfPlay.setOutput(Paths.get(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        selfPlay.run();
+    }
+
+    /**
+     * Plays every game, returning once all of them are in the output file
+     * @throws IOException if the output can not be written
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public void run() throws IOException, InterruptedException {
+        nextGame.set(0);
+        finished.set(0);
+        for(AtomicInteger count : outcomes){
+            count.set(0);
+        }
+        // Searches only use the endgame tables once they are ready, so they are made first or games would depend on timing
+        Bitbases.generate();
+        startTime = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try(DatasetWriter writer = new DatasetWriter(FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), bufferBytes, flushMillis)){
+            List<Future<?>> workers = new ArrayList<>();
+            for(int i = 0; i < threads; i++){
+                workers.add(pool.submit(() -> {
+                    playGames(writer);
+                    return null;
+                }));
+            }
+            for(Future<?> worker : workers){
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    // Stops the other workers taking new games, the first failure is the one reported
+                    nextGame.set(games);
+                    throw new IOException("Self-play worker failed", e.getCause());
+                }
+            }
+            report(writer);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Takes games by number and plays them until there are none left, run by each worker
+     */
+    private void playGames(DatasetWriter writer) throws IOException {
+        Worker worker = new Worker();
+        for(int game = nextGame.getAndIncrement(); game < games; game = nextGame.getAndIncrement()){
+            Outcome outcome = worker.play(game);
+            Dataset.setResult(worker.records, outcome);
+            writer.write(worker.records);
+            outcomes[outcome.ordinal()].incrementAndGet();
+            int done = finished.incrementAndGet();
+            // The last game is reported once run is done
+            if(done % REPORT_EVERY == 0 && done < games){
+                report(writer);
+            }
+        }
+    }
+
+    private void report(DatasetWriter writer){
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        int done = finished.get();
+        log.printf("%d/%d games, %d positions, %.1f games/s, +%d =%d -%d%n", done, games, writer.getRecords(), done / seconds,
+                outcomes[Outcome.WHITE_WINS.ordinal()].get(),
+                done - outcomes[Outcome.WHITE_WINS.ordinal()].get() - outcomes[Outcome.BLACK_WINS.ordinal()].get(),
+                outcomes[Outcome.BLACK_WINS.ordinal()].get());
+    }
+
+    public void setGames(int games) {
+        this.games = games;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * Limits each search by nodes as well as depth
+     * @param nodes the nodes to stop each search after, Long.MAX_VALUE for no limit
+     */
+    public void setNodes(long nodes) {
+        this.nodes = nodes;
+    }
+
+    public void setHashMegabytes(int hashMegabytes) {
+        this.hashMegabytes = hashMegabytes;
+    }
+
+    public void setRandomPlies(int randomPlies) {
+        this.randomPlies = randomPlies;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setFlushMillis(long flushMillis) {
+        this.flushMillis = flushMillis;
+    }
+
+    public void setOutput(Path output) {
+        this.output = output;
+    }
+
+    public void setLog(PrintStream log) {
+        this.log = log;
+    }
+
+    /**
+     * The state one worker thread reuses for all of its games
+     */
+    private final class Worker {
+        private final TranspositionTable table = new TranspositionTable(hashMegabytes);
+        private final Search search = new Search(table);
+        private final MoveGenerator generator = new MoveGenerator();
+        private final MoveList moves = new MoveList();
+        private final Position position = new Position();
+        /** the records of the game being played, at most one per ply */
+        private final ByteBuffer records = ByteBuffer.allocate(MAX_PLIES * Dataset.RECORD_BYTES);
+
+        /**
+         * Plays one game, recording every position the engine searched
+         * @param game the number of the game, seeds its random opening moves
+         * @return how the game ended, ONGOING if it reached MAX_PLIES
+         */
+        Outcome play(int game){
+            Random random = new Random(seed * 0x9E3779B97F4A7C15L + game);
+            Fen.load(Fen.STARTING_POSITION, position);
+            // Entries from earlier games would change this one, depending on which worker played them
+            table.clear();
+            records.clear();
+
+            for(int ply = 0; ply < MAX_PLIES; ply++){
+                Outcome outcome = Rules.adjudicate(position, generator);
+                if(outcome != Outcome.ONGOING){
+                    return outcome;
+                }
+
+                int move;
+                if(ply < randomPlies){
+                    int count = generator.generate(position, position.getSideToMove(), moves);
+                    move = moves.get(random.nextInt(count));
+                }
+                else{
+                    move = search.search(position, depth, nodes, Long.MAX_VALUE);
+                    Dataset.encode(position, search.getScore(), records);
+                }
+                position.makeMove(move);
+            }
+            return Outcome.ONGOING;
+        }
+    }
+}
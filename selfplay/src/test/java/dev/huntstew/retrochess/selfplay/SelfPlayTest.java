@@ -0,0 +1,132 @@
+package dev.huntstew.retrochess.selfplay;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import dev.huntstew.retrochess.engine.Fen;
+import dev.huntstew.retrochess.engine.MoveGenerator;
+import dev.huntstew.retrochess.engine.MoveList;
+import dev.huntstew.retrochess.engine.Position;
+
+import static org.junit.Assert.*;
+
+public class SelfPlayTest {
+    @Test
+    public void encode_decodesToTheSamePosition() {
+        String[] fens = {
+                Fen.STARTING_POSITION,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - - 17 42",
+        };
+        ByteBuffer buffer = ByteBuffer.allocate(fens.length * Dataset.RECORD_BYTES);
+        for(int i = 0; i < fens.length; i++){
+            Dataset.encode(Fen.parse(fens[i]), -i * 100, buffer);
+        }
+
+        Position position = new Position();
+        for(int i = 0; i < fens.length; i++){
+            Dataset.decode(buffer, i, position);
+            assertEquals(fens[i], Fen.format(position));
+            assertEquals(Fen.parse(fens[i]).getKey(), position.getKey());
+            assertEquals(-i * 100, Dataset.score(buffer, i));
+            assertEquals(Dataset.DRAW, Dataset.result(buffer, i));
+        }
+    }
+
+    @Test
+    public void run_givesTheSameGamesOnAnyNumberOfThreads() throws Exception {
+        Path one = Files.createTempFile("selfplay", ".bin");
+        Path two = Files.createTempFile("selfplay", ".bin");
+        try {
+            play(one, 1);
+            play(two, 2);
+            byte[] first = Files.readAllBytes(one);
+            byte[] second = Files.readAllBytes(two);
+            assertTrue(first.length > 0);
+            assertEquals(0, first.length % Dataset.RECORD_BYTES);
+
+            // Games may finish in any order on more threads, so the records are compared as a multiset
+            assertEquals(count(first), count(second));
+        } finally {
+            Files.delete(one);
+            Files.delete(two);
+        }
+    }
+
+    @Test
+    public void run_searchesEveryPositionUnderANodeLimit() throws Exception {
+        Path output = Files.createTempFile("selfplay", ".bin");
+        try {
+            SelfPlay selfPlay = selfPlay(output, 1);
+            selfPlay.setGames(2);
+            selfPlay.setDepth(64);
+            selfPlay.setNodes(2000);
+            selfPlay.run();
+            ByteBuffer dataset = ByteBuffer.wrap(Files.readAllBytes(output));
+            int records = dataset.capacity() / Dataset.RECORD_BYTES;
+            assertTrue(records > 20);
+
+            // A search cut off at its first node scores 0 and plays the first move generated
+            Set<Integer> scores = new HashSet<>();
+            int searchedMoves = 0;
+            MoveGenerator generator = new MoveGenerator();
+            MoveList moves = new MoveList();
+            Position position = new Position();
+            Position next = new Position();
+            for(int i = 0; i < records; i++){
+                scores.add(Dataset.score(dataset, i));
+                if(i + 1 == records){
+                    break;
+                }
+                Dataset.decode(dataset, i, position);
+                Dataset.decode(dataset, i + 1, next);
+                int count = generator.generate(position, position.getSideToMove(), moves);
+                for(int j = 1; j < count; j++){
+                    position.makeMove(moves.get(j));
+                    if(position.getKey() == next.getKey()){
+                        searchedMoves++;
+                    }
+                    position.unmakeMove();
+                }
+            }
+            assertTrue(scores.size() > records / 4);
+            assertTrue(searchedMoves > records / 2);
+        } finally {
+            Files.delete(output);
+        }
+    }
+
+    private static void play(Path output, int threads) throws Exception {
+        SelfPlay selfPlay = selfPlay(output, threads);
+        selfPlay.setGames(6);
+        selfPlay.setDepth(2);
+        selfPlay.run();
+    }
+
+    private static SelfPlay selfPlay(Path output, int threads){
+        SelfPlay selfPlay = new SelfPlay();
+        selfPlay.setThreads(threads);
+        selfPlay.setHashMegabytes(1);
+        selfPlay.setOutput(output);
+        selfPlay.setLog(new PrintStream(new ByteArrayOutputStream()));
+        return selfPlay;
+    }
+
+    private static Map<ByteBuffer, Integer> count(byte[] dataset){
+        Map<ByteBuffer, Integer> records = new HashMap<>();
+        for(int i = 0; i < dataset.length; i += Dataset.RECORD_BYTES){
+            records.merge(ByteBuffer.wrap(dataset, i, Dataset.RECORD_BYTES).slice(), 1, Integer::sum);
+        }
+        return records;
+    }
+}
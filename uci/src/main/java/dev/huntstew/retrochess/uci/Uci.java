@@ -0,0 +1,460 @@
+package dev.huntstew.retrochess.uci;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import dev.huntstew.retrochess.engine.Bitbases;
+import dev.huntstew.retrochess.engine.Fen;
+import dev.huntstew.retrochess.engine.Moves;
+import dev.huntstew.retrochess.engine.OpeningBook;
+import dev.huntstew.retrochess.engine.ParallelSearch;
+import dev.huntstew.retrochess.engine.Pieces;
+import dev.huntstew.retrochess.engine.Position;
+import dev.huntstew.retrochess.engine.Search;
+
+/**
+ * Universal Chess Interface front-end, reads commands from stdin and answers on stdout
+ * Commands are read on the calling thread and searches run on a thread of their own,
+ * so stop is seen by the search as soon as it is read
+ */
+public final class Uci {
+    private static final String NAME = "Retro Chess";
+    private static final String AUTHOR = "the Retro Chess authors";
+
+    /** moves left assumed when the GUI does not say how many there are to the next time control */
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+    /** time kept back from the clock for reading and answering commands */
+    private static final long MOVE_OVERHEAD_MILLIS = 50;
+
+    private final BufferedReader input;
+    private final PrintStream output;
+    /** runs one search at a time */
+    private final ExecutorService searchThread = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "uci-search"));
+    /** stops a search once its time is up after a ponderhit */
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "uci-timer"));
+
+    private int threads = 1;
+    private int hashMegabytes = Search.DEFAULT_TABLE_MEGABYTES;
+    private ParallelSearch search = new ParallelSearch(threads, hashMegabytes);
+
+    /** the book set by the BookFile option, null for none */
+    private OpeningBook book;
+    /** whether to play from the book, the OwnBook option */
+    private boolean ownBook;
+    private final Random random = new Random();
+
+    private Position position = Fen.parse(Fen.STARTING_POSITION);
+    /** the running search, null before the first go */
+    private Future<?> running;
+
+    /** guards searching, holding and searchId between the command and search threads */
+    private final Object lock = new Object();
+    /** whether a search has been started and has not yet cleared its stop */
+    private boolean searching;
+    /** while pondering or searching infinitely the best move is held back until stop or ponderhit */
+    private boolean holding;
+    /** counts searches, so a timer set for one search never stops the next */
+    private int searchId;
+    /** the time allowed for the search once a ponder is hit */
+    private long ponderBudget;
+    /** System.nanoTime when the running search started, for info time and nps */
+    private volatile long startTime;
+
+    public Uci(BufferedReader input, PrintStream output){
+        this.input = input;
+        this.output = output;
+        search.setListener(this::printInfo);
+    }
+
+    public static void main(String[] args) throws IOException {
+        new Uci(new BufferedReader(new InputStreamReader(System.in)), new PrintStream(System.out, true)).run();
+    }
+
+    /**
+     * Reads and answers commands until quit or the end of input
+     * @throws IOException if the input can not be read
+     */
+    public void run() throws IOException {
+        // Searches leave the endgame tables out until they are ready, so they are started before the GUI asks for anything
+        Bitbases.generateInBackground();
+        for(String line = input.readLine(); line != null; line = input.readLine()){
+            if(!handle(line.trim())){
+                break;
+            }
+        }
+        finishSearch();
+        search.shutdown();
+        searchThread.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    /**
+     * Answers one command
+     * @param line the command line
+     * @return false once the engine should quit
+     */
+    boolean handle(String line){
+        String[] tokens = line.split("\\s+");
+        switch(tokens[0]){
+            case "uci":
+                output.println("id name " + NAME);
+                output.println("id author " + AUTHOR);
+                output.println("option name Hash type spin default " + Search.DEFAULT_TABLE_MEGABYTES + " min 1 max 1024");
+                output.println("option name Threads type spin default 1 min 1 max " + Runtime.getRuntime().availableProcessors());
+                output.println("option name Ponder type check default false");
+                output.println("option name OwnBook type check default false");
+                output.println("option name BookFile type string default <empty>");
+                output.println("uciok");
+                break;
+            case "isready":
+                // The GUI waits for readyok before timing a search, a good time to finish the endgame tables
+                Bitbases.generate();
+                output.println("readyok");
+                break;
+            case "setoption":
+                finishSearch();
+                setOption(tokens);
+                break;
+            case "ucinewgame":
+                finishSearch();
+                search.getTable().clear();
+                break;
+            case "position":
+                finishSearch();
+                setPosition(tokens);
+                break;
+            case "go":
+                finishSearch();
+                go(tokens);
+                break;
+            case "stop":
+                stop();
+                break;
+            case "ponderhit":
+                ponderHit();
+                break;
+            case "quit":
+                return false;
+            case "":
+                break;
+            default:
+                output.println("info string unknown command " + line);
+        }
+        return true;
+    }
+
+    /**
+     * Handles setoption name Hash value N and setoption name Threads value N, a new search is created for either
+     * Also handles setoption name OwnBook value true|false and setoption name BookFile value PATH, the book is mapped straight away
+     * @param tokens the command
+     */
+    private void setOption(String[] tokens){
+        if(tokens.length < 5 || !tokens[1].equals("name") || !tokens[3].equals("value")){
+            return;
+        }
+        if(tokens[2].equalsIgnoreCase("OwnBook")){
+            ownBook = tokens[4].equalsIgnoreCase("true");
+            return;
+        }
+        if(tokens[2].equalsIgnoreCase("BookFile")){
+            // Paths may contain spaces, so the value is the rest of the line
+            String path = String.join(" ", Arrays.copyOfRange(tokens, 4, tokens.length));
+            book = null;
+            if(!path.equals("<empty>")){
+                try {
+                    book = OpeningBook.open(Paths.get(path));
+                } catch (IOException e) {
+                    output.println("info string can not open book " + path + ": " + e.getMessage());
+                }
+            }
+            return;
+        }
+        try {
+            int value = Integer.parseInt(tokens[4]);
+            if(tokens[2].equalsIgnoreCase("Hash")){
+                hashMegabytes = Math.max(1, Math.min(1024, value));
+            }
+            else if(tokens[2].equalsIgnoreCase("Threads")){
+                threads = Math.max(1, value);
+            }
+            else{
+                return;
+            }
+        } catch (NumberFormatException e) {
+            output.println("info string bad option value " + tokens[4]);
+            return;
+        }
+        search.shutdown();
+        search = new ParallelSearch(threads, hashMegabytes);
+        search.setListener(this::printInfo);
+    }
+
+    /**
+     * Handles position [startpos | fen FEN] [moves MOVE...]
+     * @param tokens the command
+     */
+    private void setPosition(String[] tokens){
+        int index = 1;
+        Position next;
+        try {
+            if(tokens.length > 1 && tokens[1].equals("startpos")){
+                next = Fen.parse(Fen.STARTING_POSITION);
+                index = 2;
+            }
+            else if(tokens.length > 1 && tokens[1].equals("fen")){
+                StringBuilder fen = new StringBuilder();
+                for(index = 2; index < tokens.length && !tokens[index].equals("moves"); index++){
+                    fen.append(tokens[index]).append(' ');
+                }
+                next = Fen.parse(fen.toString());
+            }
+            else{
+                output.println("info string position needs startpos or fen");
+                return;
+            }
+        } catch (IllegalArgumentException e) {
+            output.println("info string " + e.getMessage());
+            return;
+        }
+
+        if(index < tokens.length && tokens[index].equals("moves")){
+            for(index++; index < tokens.length; index++){
+                int move = Moves.parse(next, tokens[index]);
+                if(move == Moves.NO_MOVE){
+                    output.println("info string illegal move " + tokens[index]);
+                    break;
+                }
+                next.makeMove(move);
+            }
+        }
+        position = next;
+    }
+
+    /**
+     * Handles go with any of depth, nodes, movetime, wtime, btime, winc, binc, movestogo, infinite and ponder
+     * @param tokens the command
+     */
+    private void go(String[] tokens){
+        int depth = Search.MAX_PLY;
+        long nodes = Long.MAX_VALUE;
+        long moveTime = -1;
+        long[] time = {-1, -1};
+        long[] increment = {0, 0};
+        int movesToGo = DEFAULT_MOVES_TO_GO;
+        boolean infinite = false;
+        boolean ponder = false;
+
+        try {
+            for(int i = 1; i < tokens.length; i++){
+                switch(tokens[i]){
+                    case "depth":
+                        depth = Integer.parseInt(tokens[++i]);
+                        break;
+                    case "nodes":
+                        nodes = Long.parseLong(tokens[++i]);
+                        break;
+                    case "movetime":
+                        moveTime = Long.parseLong(tokens[++i]);
+                        break;
+                    case "wtime":
+                        time[Pieces.WHITE] = Long.parseLong(tokens[++i]);
+                        break;
+                    case "btime":
+                        time[Pieces.BLACK] = Long.parseLong(tokens[++i]);
+                        break;
+                    case "winc":
+                        increment[Pieces.WHITE] = Long.parseLong(tokens[++i]);
+                        break;
+                    case "binc":
+                        increment[Pieces.BLACK] = Long.parseLong(tokens[++i]);
+                        break;
+                    case "movestogo":
+                        movesToGo = Math.max(1, Integer.parseInt(tokens[++i]));
+                        break;
+                    case "infinite":
+                        infinite = true;
+                        break;
+                    case "ponder":
+                        ponder = true;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            output.println("info string bad go command");
+            return;
+        }
+
+        // A book move is answered at once, but a GUI that said infinite or ponder is waiting for a search it can stop
+        if(ownBook && book != null && !ponder && !infinite){
+            int bookMove = book.pick(position, random);
+            if(bookMove != Moves.NO_MOVE){
+                output.println("bestmove " + Moves.toString(bookMove));
+                return;
+            }
+        }
+
+        int color = position.getSideToMove();
+        long budget = Long.MAX_VALUE;
+        if(moveTime >= 0){
+            budget = moveTime;
+        }
+        else if(time[color] >= 0){
+            budget = Math.min(time[color] / movesToGo + increment[color] * 3 / 4, time[color] - MOVE_OVERHEAD_MILLIS);
+            budget = Math.max(1, budget);
+        }
+
+        Position root = new Position(position);
+        int maxDepth = depth;
+        long maxNodes = nodes;
+        long maxMillis = ponder || infinite ? Long.MAX_VALUE : budget;
+        synchronized(lock){
+            searching = true;
+            holding = ponder || infinite;
+            ponderBudget = budget;
+            searchId++;
+        }
+        startTime = System.nanoTime();
+        running = searchThread.submit(() -> runSearch(root, maxDepth, maxNodes, maxMillis));
+    }
+
+    /**
+     * Searches on the search thread and answers with the best move
+     * @param root the position to search
+     * @param maxDepth the deepest iteration
+     * @param maxNodes the node limit
+     * @param maxMillis the time limit
+     */
+    private void runSearch(Position root, int maxDepth, long maxNodes, long maxMillis){
+        int best = search.search(root, maxDepth, maxNodes, maxMillis);
+        int[] line = search.getMain().getPrincipalVariation();
+
+        synchronized(lock){
+            // A GUI that said infinite or ponder expects no best move before it says stop or ponderhit
+            while(holding){
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            searching = false;
+            search.clearStop();
+        }
+
+        if(best == Moves.NO_MOVE){
+            output.println("bestmove 0000");
+        }
+        else if(line.length > 1 && line[0] == best){
+            output.println("bestmove " + Moves.toString(best) + " ponder " + Moves.toString(line[1]));
+        }
+        else{
+            output.println("bestmove " + Moves.toString(best));
+        }
+    }
+
+    /**
+     * Stops the running search, it answers with its best move straight away
+     */
+    private void stop(){
+        synchronized(lock){
+            holding = false;
+            lock.notifyAll();
+            if(searching){
+                search.stop();
+            }
+        }
+    }
+
+    /**
+     * The opponent played the expected move, so the ponder search carries on as a normal search with the time it was given
+     */
+    private void ponderHit(){
+        synchronized(lock){
+            if(!searching){
+                return;
+            }
+            holding = false;
+            lock.notifyAll();
+            if(ponderBudget != Long.MAX_VALUE){
+                int id = searchId;
+                long elapsed = (System.nanoTime() - startTime) / 1_000_000;
+                timer.schedule(() -> stopSearch(id), Math.max(0, ponderBudget - elapsed), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Stops a search if it is still the one running
+     * @param id the searchId of the search to stop
+     */
+    private void stopSearch(int id){
+        synchronized(lock){
+            if(searching && searchId == id){
+                search.stop();
+            }
+        }
+    }
+
+    /**
+     * Stops the running search and waits for it to answer, commands that change the position or search must not overlap one
+     * A GUI that sends them without stopping an infinite or ponder search first would otherwise wait forever
+     */
+    private void finishSearch(){
+        stop();
+        if(running == null){
+            return;
+        }
+        try {
+            running.get();
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Prints an info line for a finished iteration, called on the search thread
+     * @param main the main search
+     */
+    private void printInfo(Search main){
+        long millis = Math.max(1, (System.nanoTime() - startTime) / 1_000_000);
+        long nodes = search.getNodes();
+        int score = main.getScore();
+        StringBuilder info = new StringBuilder("info depth ").append(main.getDepth());
+        if(Search.isMate(score)){
+            int plies = Search.MATE - Math.abs(score);
+            info.append(" score mate ").append(score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2);
+        }
+        else{
+            info.append(" score cp ").append(score);
+        }
+        info.append(" nodes ").append(nodes)
+                .append(" nps ").append(nodes * 1000 / millis)
+                .append(" time ").append(millis)
+                .append(" hashfull ").append(search.getTable().usedPerMille())
+                .append(" pv");
+        for(int move : main.getPrincipalVariation()){
+            info.append(' ').append(Moves.toString(move));
+        }
+        output.println(info);
+    }
+
+    private static Thread daemon(Runnable runnable, String name){
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,57 @@
+package dev.huntstew.retrochess.uci;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class UciTest {
+    @Test
+    public void go_answersWithLegalBestMove() throws InterruptedException {
+        // After 1. f3 e5 2. g4 the only good move is mate
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Uci uci = new Uci(new BufferedReader(new StringReader("")), new PrintStream(bytes, true));
+        uci.handle("position startpos moves f2f3 e7e5 g2g4");
+        uci.handle("go depth 3");
+        String output = awaitBestMoves(bytes, 1);
+        assertTrue(output, output.contains("score mate 1"));
+        assertTrue(output, output.contains("bestmove d8h4"));
+    }
+
+    @Test
+    public void stop_endsInfiniteSearch() throws IOException {
+        String output = run("position fen r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", "go infinite", "stop");
+        assertTrue(output, output.contains("bestmove "));
+    }
+
+    @Test(timeout = 10000)
+    public void position_stopsInfiniteSearch() throws IOException {
+        // A GUI that changes the position without saying stop still gets both answers
+        String output = run("position startpos", "go infinite", "position startpos moves e2e4", "go depth 2");
+        assertEquals(output, 2, output.split("bestmove ", -1).length - 1);
+    }
+
+    /**
+     * Waits for the search thread to answer a number of times
+     */
+    private static String awaitBestMoves(ByteArrayOutputStream bytes, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while(bytes.toString().split("bestmove ", -1).length - 1 < count){
+            assertTrue(bytes.toString(), System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+        return bytes.toString();
+    }
+
+    private static String run(String... commands) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        String input = String.join("\n", commands) + "\n";
+        new Uci(new BufferedReader(new StringReader(input)), new PrintStream(bytes, true)).run();
+        return bytes.toString();
+    }
+}